@@ -6,6 +6,7 @@ import com.s8.core.web.helium.http1.HTTP1_IOReactive.Result;
 import com.s8.core.web.helium.http1.messages.HTTP1_Request;
 import com.s8.core.web.helium.rx.RxConnection;
 import com.s8.core.web.helium.rx.RxInbound;
+import com.s8.core.web.helium.rx.RxTimeout;
 
 public class HTTP1_Inbound extends RxInbound {
 
@@ -38,6 +39,12 @@ public class HTTP1_Inbound extends RxInbound {
 
 	@Override
 	public void rx_onReceived() {
+
+		/* a request is (being) received: MUST be completed in time */
+		if(networkBuffer.hasRemaining() && !connection.isTimeoutArmed(RxTimeout.HEADER)) {
+			connection.armTimeout(RxTimeout.HEADER);
+		}
+
 		boolean isReceiving = true;
 		while(isReceiving) {
 			
@@ -46,8 +53,14 @@ public class HTTP1_Inbound extends RxInbound {
 			switch(result) {
 
 			case OK:
+				connection.cancelTimeout(RxTimeout.HEADER);
 				connection.onReceivedRequest(request);
 
+				/* pipelined request already started */
+				if(networkBuffer.hasRemaining()) {
+					connection.armTimeout(RxTimeout.HEADER);
+				}
+
 				// initiate new request parsing
 				request = new HTTP1_Request();
 				parsing = request.parse(); 	
@@ -23,6 +23,11 @@ public class HTTP1_Outbound extends RxOutbound {
 	private Queue<HTTP1_Response> queue;
 	
 	private HTTP1_IOReactive composing;
+
+	/**
+	 * bytes accounted for the response being composed
+	 */
+	private int composingLength;
 	
 	public HTTP1_Outbound(String name, HTTP1_Connection connection, HTTP1_WebConfiguration configuration) {
 		super(name, configuration);
@@ -35,12 +40,23 @@ public class HTTP1_Outbound extends RxOutbound {
 	 * @param response
 	 */
 	public void push(HTTP1_Response response) {
+		onQueued(getLength(response));
 		queue.add(response);
 		
 		// notify that there is data to be sent and start asynchronously
 		connection.resume();
 	}
 
+	/**
+	 * 
+	 * @param response
+	 * @return the bytes accounted for backpressure (body only: headers are small)
+	 */
+	private static int getLength(HTTP1_Response response) {
+		return response.body != null ? response.body.length : 0;
+	}
+
+
 	@Override
 	public RxConnection getConnection() {
 		return connection;
@@ -51,6 +67,7 @@ public class HTTP1_Outbound extends RxOutbound {
 			HTTP1_Response response = queue.poll();
 			if(response!=null) {
 				composing = response.compose();
+				composingLength = getLength(response);
 			}
 		}
 	}
@@ -65,6 +82,7 @@ public class HTTP1_Outbound extends RxOutbound {
 			switch(result) {
 			case OK:
 				composing = null;
+				onDequeued(composingLength);
 				pull();
 				isSending = composing!=null;
 				break;
@@ -13,6 +13,7 @@ import com.s8.core.web.helium.http2.messages.HTTP2_Message;
 import com.s8.core.web.helium.http2.settings.HTTP2_Settings;
 import com.s8.core.web.helium.http2.streams.HTTP2_Stream;
 import com.s8.core.web.helium.http2.streams.HTTP2_StreamMapping;
+import com.s8.core.web.helium.rx.RxTimeout;
 import com.s8.core.web.helium.ssl.SSL_Connection;
 
 
@@ -69,6 +70,10 @@ public abstract class HTTP2_Connection extends SSL_Connection {
 
 		isVerbose = config.isHTTP2Verbose;
 
+		if(config.timeout > 0) {
+			setTimeout(RxTimeout.IDLE, config.timeout * 1000);
+		}
+
 		// save context
 		HPACK_context = getEndpoint().HPACK_getContext();
 
@@ -130,6 +135,14 @@ public abstract class HTTP2_Connection extends SSL_Connection {
 	}
 
 
+	/**
+	 * Connection is closed: messages still being received are dropped
+	 */
+	void resetStreams() {
+		streamMapping.reset();
+	}
+
+
 
 	/**
 	 *  <h1>Connection Error Handling</h1>
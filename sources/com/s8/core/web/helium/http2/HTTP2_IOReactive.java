@@ -11,4 +11,12 @@ public interface HTTP2_IOReactive {
 
 	public HTTP2_Error on(ByteBuffer buffer);
 	
+	
+	/**
+	 * Reception is aborted (error or connection closed): give back what has been
+	 * retained so far. No effect by default.
+	 */
+	public default void release() {
+	}
+	
 }
@@ -4,6 +4,8 @@ import java.nio.ByteBuffer;
 
 import com.s8.core.web.helium.http2.settings.HTTP2_Settings;
 import com.s8.core.web.helium.http2.utilities.ReceivingPreface;
+import com.s8.core.web.helium.rx.RxSharedBuffer;
+import com.s8.core.web.helium.rx.RxTimeout;
 import com.s8.core.web.helium.ssl.SSL_Inbound;
 
 public class HTTP2_Inbound extends SSL_Inbound {
@@ -15,6 +17,12 @@ public class HTTP2_Inbound extends SSL_Inbound {
 	
 	
 	private HTTP2_IOReactive state;
+
+	/**
+	 * true between two frames (a new frame costs one unit of the connection's
+	 * frame budget)
+	 */
+	private boolean isAtFrameBoundary = true;
 	
 	private boolean HTTP2_isVerbose;
 
@@ -59,6 +67,9 @@ public class HTTP2_Inbound extends SSL_Inbound {
 	protected void http2_initialize() {
 		if(connection.isServerSide()) {
 			state = new ReceivingPreface(this);
+
+			/* client preface MUST be received in time */
+			connection.armTimeout(RxTimeout.HEADER);
 		}
 	}
 	
@@ -78,8 +89,16 @@ public class HTTP2_Inbound extends SSL_Inbound {
 	public void ssl_onReceived(ByteBuffer buffer) {
 		try {
 			while(state!=null && buffer.hasRemaining()) {
+
+				/* over budget: leave the rest in buffer, resumed in next loop */
+				if(isAtFrameBoundary) {
+					if(!connection.acquireFrame()) { break; }
+					isAtFrameBoundary = false;
+				}
+
 				HTTP2_Error error = state.on(buffer);
 				if(error!=HTTP2_Error.NO_ERROR) {
+					abort();
 					connection.close();
 				}
 			}
@@ -88,11 +107,59 @@ public class HTTP2_Inbound extends SSL_Inbound {
 			if(HTTP2_isVerbose) {
 				throwable.printStackTrace();	
 			}
+			abort();
 			connection.close();
 		}
 	}
 
 
+	@Override
+	public void ssl_onClosed() {
+		abort();
+		connection.resetStreams();
+	}
+
+
+	/**
+	 * Stop receiving: the frame in progress (if any) is dropped, along with what
+	 * it has retained
+	 */
+	private void abort() {
+		if(state!=null) {
+			state.release();
+			state = null;
+		}
+	}
+
+
+	/**
+	 * A frame has been fully received and processed
+	 */
+	public void onFrameReceived() {
+		isAtFrameBoundary = true;
+	}
+
+
+	/**
+	 * 
+	 * @return true if DATA payloads are kept as slices of the decrypted records
+	 *         (slicing unwrap), instead of being copied
+	 */
+	public boolean isSlicing() {
+		return ssl_getReceivedBuffer() != null;
+	}
+
+
+	/**
+	 * /!\ During reception only (see <code>SSL_Inbound.ssl_getReceivedBuffer</code>)
+	 * 
+	 * @return the shared buffer backing the bytes being received
+	 */
+	public RxSharedBuffer getReceivedBuffer() {
+		return ssl_getReceivedBuffer();
+	}
+
+
 	public boolean isVerbose() {
 		return HTTP2_isVerbose;
 	}
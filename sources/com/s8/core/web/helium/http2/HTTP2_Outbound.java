@@ -1,10 +1,12 @@
 package com.s8.core.web.helium.http2;
 
 import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
 import java.util.Queue;
 import java.util.concurrent.ConcurrentLinkedQueue;
 
 import com.s8.core.web.helium.http2.frames.HTTP2_Frame;
+import com.s8.core.web.helium.http2.frames.HTTP2_FrameHeader;
 import com.s8.core.web.helium.http2.frames.SendingFrameHeader;
 import com.s8.core.web.helium.http2.utilities.SendingPreface;
 import com.s8.core.web.helium.ssl.SSL_Outbound;
@@ -20,10 +22,16 @@ public class HTTP2_Outbound extends SSL_Outbound {
 
 	private HTTP2_IOReactive state;
 
-	private Queue<HTTP2_Frame> queue;
+	private Queue<Queued> queue;
 
 	private boolean isStateAlive;
 
+	/**
+	 * Frame slices presented to the gathering wrap, not fully consumed yet (READ
+	 * mode)
+	 */
+	private final ArrayDeque<ByteBuffer> gathered = new ArrayDeque<>();
+
 	public HTTP2_Outbound(String name, HTTP2_Connection connection, HTTP2_WebConfiguration configuration) {
 		super(name, configuration);
 		this.connection = connection;
@@ -62,7 +70,28 @@ public class HTTP2_Outbound extends SSL_Outbound {
 	}
 
 	public HTTP2_Frame next() {
-		return queue.poll();
+		Queued queued = queue.poll();
+		if(queued == null) { return null; }
+		onDequeued(queued.length);
+		return queued.frame;
+	}
+
+
+	/**
+	 * Queued frame, with the bytes accounted for backpressure when pushed
+	 * (header included), so that dequeuing releases exactly that amount.
+	 */
+	private static class Queued {
+
+		public final HTTP2_Frame frame;
+
+		public final int length;
+
+		public Queued(HTTP2_Frame frame, int length) {
+			super();
+			this.frame = frame;
+			this.length = length;
+		}
 	}
 
 	public void setAlive(boolean stateFlag) {
@@ -105,8 +134,47 @@ public class HTTP2_Outbound extends SSL_Outbound {
 		}
 	}
 
+	/**
+	 * Queued frames are presented as header slice plus payload slices, encrypted
+	 * in place. A frame already started by the copying states is completed by
+	 * them first.
+	 */
+	@Override
+	protected void ssl_onGathering(int nBytes) {
+		if(gathered.isEmpty() && !(state instanceof SendingFrameHeader && ((SendingFrameHeader) state).isIdle())) {
+			return; /* keep on copying (preface, or frame in progress) */
+		}
+
+		long nGatheredBytes = 0;
+		for(ByteBuffer slice : gathered) { nGatheredBytes += slice.remaining(); }
+
+		HTTP2_Frame frame;
+		while(nGatheredBytes < nBytes && (frame = next()) != null) {
+			if (isVerbose) {
+				System.out.println("[HTTP2_Outbound] Start gathering frame: "+frame.getType());
+			}
+			ByteBuffer header = frame.getHeader().compose().toBuffer();
+			gathered.add(header);
+			nGatheredBytes += header.remaining();
+			for(ByteBuffer slice : frame.gatherPayload()) {
+				gathered.add(slice);
+				nGatheredBytes += slice.remaining();
+			}
+		}
+
+		for(ByteBuffer slice : gathered) { gather(slice); }
+	}
+
+	@Override
+	protected void ssl_onGathered() {
+		while(!gathered.isEmpty() && !gathered.peek().hasRemaining()) { gathered.poll(); }
+	}
+
 	public void push(HTTP2_Frame frame) {
-		queue.add(frame);
+		/* header composed once, not again on dequeuing */
+		int length = HTTP2_FrameHeader.FRAME_HEADER_LENGTH + frame.getHeader().length;
+		onQueued(length);
+		queue.add(new Queued(frame, length));
 
 		// notify that there is data to be sent and start asynchronously
 		connection.resumeSending();
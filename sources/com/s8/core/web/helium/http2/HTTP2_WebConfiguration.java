@@ -12,6 +12,10 @@ import com.s8.core.web.helium.ssl.SSL_WebConfiguration;
 public class HTTP2_WebConfiguration extends SSL_WebConfiguration {
 	
 
+	/**
+	 * Idle timeout (in seconds) of HTTP/2 connections, overriding
+	 * <code>idleTimeout</code>. 0 to fall back on <code>idleTimeout</code>.
+	 */
 	public long timeout = 10;
 	
 	public boolean isHTTP2Verbose;
@@ -21,6 +25,11 @@ public class HTTP2_WebConfiguration extends SSL_WebConfiguration {
 	public boolean isHuffmanEncoding;
 
 
+	@XML_SetElement(tag="HTTP2-timeout")
+	public void setHTTP2Timeout(long timeout) {
+		this.timeout = timeout;
+	}
+
 	@XML_SetElement(tag="HPACK-isVerbose")
 	public void setHPACKVerbose(boolean isVerbose) {
 		this.isHPACKVerbose = isVerbose;
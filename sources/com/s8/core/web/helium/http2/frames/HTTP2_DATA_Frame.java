@@ -1,11 +1,14 @@
 package com.s8.core.web.helium.http2.frames;
 
+import java.nio.ByteBuffer;
+import java.util.List;
 
 import com.s8.core.io.bytes.linked.LinkedBytes;
 import com.s8.core.web.helium.http2.HTTP2_Connection;
 import com.s8.core.web.helium.http2.HTTP2_Error;
 import com.s8.core.web.helium.http2.streams.HTTP2_Stream;
 import com.s8.core.web.helium.http2.utilities.BytesBlock;
+import com.s8.core.web.helium.rx.RxSharedBuffer;
 
 /**
  * <h1>6.1. DATA</h1>
@@ -108,6 +111,13 @@ public class HTTP2_DATA_Frame extends HTTP2_Frame {
 
 	public LinkedBytes fragment;
 
+	/**
+	 * Shared buffers referenced (retained) by <code>fragment</code>, if received
+	 * as slices (see <code>ReceivingDataPayload</code>). <code>null</code>
+	 * otherwise.
+	 */
+	public List<RxSharedBuffer> sharedBuffers;
+
 
 	public HTTP2_DATA_Frame() {
 		super();
@@ -143,6 +153,14 @@ public class HTTP2_DATA_Frame extends HTTP2_Frame {
 	}
 
 
+	/**
+	 * 
+	 * @return true if PADDED flag is set (Pad Length field present)
+	 */
+	boolean isPadded() {
+		return isPadded;
+	}
+
 	@Override
 	public HTTP2_FrameType getType() {
 		return HTTP2_FrameType.DATA;
@@ -222,6 +240,24 @@ public class HTTP2_DATA_Frame extends HTTP2_Frame {
 		return payload;
 	}
 
+	/**
+	 * Fragment is presented as is (no copy), between pad length and padding if
+	 * padded.
+	 */
+	@Override
+	public ByteBuffer[] gatherPayload() {
+		ByteBuffer data = ByteBuffer.wrap(fragment.bytes, fragment.offset, fragment.length);
+		if(isPadded) {
+			ByteBuffer padLength = ByteBuffer.wrap(new byte[] { (byte) paddingLength });
+			/* padding octets MUST be set to zero when sending */
+			ByteBuffer padding = ByteBuffer.wrap(new byte[paddingLength]);
+			return new ByteBuffer[] { padLength, data, padding };
+		}
+		else {
+			return new ByteBuffer[] { data };
+		}
+	}
+
 	@Override
 	public HTTP2_Error onReceived(HTTP2_Connection endpoint) {
 		HTTP2_Stream stream = endpoint.getStream(streamIdentifier);
@@ -229,10 +265,14 @@ public class HTTP2_DATA_Frame extends HTTP2_Frame {
 		// check state
 		switch(stream.getState()) {
 		case OPEN: break; // no problem
-		default: return HTTP2_Error.PROTOCOL_ERROR;
+		default: 
+			if(sharedBuffers != null) { sharedBuffers.forEach(RxSharedBuffer::release); }
+			return HTTP2_Error.PROTOCOL_ERROR;
 		}
 
-		stream.pushData(fragment);
+		/* on error, shared buffers have already been released by the stream */
+		HTTP2_Error error = sharedBuffers != null ? stream.pushData(fragment, sharedBuffers) : stream.pushData(fragment);
+		if(error != HTTP2_Error.NO_ERROR) { return error; }
 
 		if(isEndOfStream) {
 			stream.remoteClose();
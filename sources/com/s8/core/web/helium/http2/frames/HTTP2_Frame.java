@@ -1,5 +1,7 @@
 package com.s8.core.web.helium.http2.frames;
 
+import java.nio.ByteBuffer;
+
 import com.s8.core.web.helium.http2.HTTP2_Connection;
 import com.s8.core.web.helium.http2.HTTP2_Error;
 import com.s8.core.web.helium.http2.utilities.BytesBlock;
@@ -61,6 +63,18 @@ public abstract class HTTP2_Frame {
 	public abstract BytesBlock composePayload();
 
 
+	/**
+	 * Payload as slices (READ mode) to be encrypted in place by a gathering wrap.
+	 * Default is the composed payload; frames holding their payload bytes
+	 * already override this to skip composing.
+	 * 
+	 * @return the payload slices, in sending order
+	 */
+	public ByteBuffer[] gatherPayload() {
+		return new ByteBuffer[] { composePayload().toBuffer() };
+	}
+
+
 	/**
 	 * Test the presence of END_STREAM flag, and return 
 	 * @return END_STREAM flag value if defined, false otherwise
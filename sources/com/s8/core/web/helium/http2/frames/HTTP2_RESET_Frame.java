@@ -3,7 +3,6 @@ package com.s8.core.web.helium.http2.frames;
 import com.s8.core.web.helium.http2.HTTP2_Connection;
 import com.s8.core.web.helium.http2.HTTP2_Error;
 import com.s8.core.web.helium.http2.streams.HTTP2_Stream;
-import com.s8.core.web.helium.http2.streams.HTTP2_StreamState;
 import com.s8.core.web.helium.http2.utilities.BytesBlock;
 
 /**
@@ -163,7 +162,7 @@ public class HTTP2_RESET_Frame extends HTTP2_Frame {
 
 		HTTP2_Stream stream = endpoint.getStream(streamIdentifier);
 		if(stream!=null) {
-			stream.setState(HTTP2_StreamState.CLOSED);
+			stream.reset();
 			return HTTP2_Error.NO_ERROR;		
 		}
 		else {
@@ -0,0 +1,147 @@
+package com.s8.core.web.helium.http2.frames;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.s8.core.io.bytes.linked.LinkedBytes;
+import com.s8.core.web.helium.http2.HTTP2_Error;
+import com.s8.core.web.helium.http2.HTTP2_IOReactive;
+import com.s8.core.web.helium.http2.HTTP2_Inbound;
+import com.s8.core.web.helium.rx.RxSharedBuffer;
+
+
+/**
+ * <p>
+ * Receiving the payload of a DATA frame without copy (slicing unwrap): instead
+ * of being accumulated in a <code>BytesBlock</code>, data is kept as slices of
+ * the shared buffers records have been decrypted into. The fragment is a chain
+ * with one link per record crossed by the frame.
+ * </p>
+ * <p>
+ * Shared buffers are retained once per frame, and handed over to the message
+ * (see <code>HTTP2_Message.release()</code>), or released if the frame is
+ * dropped (see <code>release()</code>).
+ * </p>
+ *
+ * @author pierreconvert
+ *
+ */
+public class ReceivingDataPayload implements HTTP2_IOReactive {
+
+	private HTTP2_Inbound inbound;
+
+	private HTTP2_DATA_Frame frame;
+
+	private int payloadLength;
+
+	private boolean isPadLengthPending;
+
+	private int nDataRemaining;
+
+	private int nPaddingRemaining;
+
+	private LinkedBytes head, tail;
+
+	private List<RxSharedBuffer> sharedBuffers = new ArrayList<>(2);
+
+
+	public ReceivingDataPayload(HTTP2_Inbound inbound, HTTP2_DATA_Frame frame, int payloadLength) {
+		super();
+		this.inbound = inbound;
+		this.frame = frame;
+		this.payloadLength = payloadLength;
+		this.isPadLengthPending = frame.isPadded();
+		this.nDataRemaining = isPadLengthPending ? 0 : payloadLength;
+	}
+
+
+	@Override
+	public HTTP2_Error on(ByteBuffer buffer) {
+		if(isPadLengthPending) {
+			if(payloadLength == 0) { release(); return HTTP2_Error.PROTOCOL_ERROR; }
+			if(!buffer.hasRemaining()) { return HTTP2_Error.NO_ERROR; }
+
+			isPadLengthPending = false;
+			nPaddingRemaining = buffer.get() & 0xff;
+			nDataRemaining = payloadLength - 1 - nPaddingRemaining;
+
+			/*
+			 * Padding that exceeds the size remaining for the
+			 * header block fragment MUST be treated as a PROTOCOL_ERROR.
+			 */
+			if(nDataRemaining < 0) { release(); return HTTP2_Error.PROTOCOL_ERROR; }
+		}
+
+		int n = Math.min(nDataRemaining, buffer.remaining());
+		if(n > 0) {
+			slice(buffer, n);
+			nDataRemaining -= n;
+		}
+
+		/* padding is skipped */
+		n = Math.min(nPaddingRemaining, buffer.remaining());
+		if(n > 0) {
+			buffer.position(buffer.position() + n);
+			nPaddingRemaining -= n;
+		}
+
+		if(nDataRemaining == 0 && nPaddingRemaining == 0) {
+
+			if(inbound.isVerbose()) {
+				System.out.println("[HTTP2] Frame received: "+frame.getType()+" (slices: "+sharedBuffers.size()+")");
+			}
+
+			frame.fragment = head != null ? head : new LinkedBytes(new byte[0], 0, 0);
+
+			/* references handed over to the frame (released on error) */
+			frame.sharedBuffers = sharedBuffers;
+			sharedBuffers = null;
+
+			HTTP2_Error error = frame.onReceived(inbound.getEndpoint());
+			if(error != HTTP2_Error.NO_ERROR) { return error;}
+
+			inbound.onFrameReceived();
+
+			// start listening for new frame
+			inbound.setState(new ReceivingFrameHeader(inbound));
+		}
+		return HTTP2_Error.NO_ERROR;
+	}
+
+
+	@Override
+	public void release() {
+		if(sharedBuffers != null) {
+			sharedBuffers.forEach(RxSharedBuffer::release);
+			sharedBuffers = null;
+		}
+		head = null;
+		tail = null;
+	}
+
+
+	/**
+	 * Keep the next <code>length</code> bytes of buffer as a new link of the
+	 * fragment
+	 *
+	 * @param buffer
+	 * @param length
+	 */
+	private void slice(ByteBuffer buffer, int length) {
+		RxSharedBuffer sharedBuffer = inbound.getReceivedBuffer();
+
+		/* one reference per shared buffer crossed */
+		int n = sharedBuffers.size();
+		if(n == 0 || sharedBuffers.get(n - 1) != sharedBuffer) {
+			sharedBuffers.add(sharedBuffer.retain());
+		}
+
+		int position = buffer.position();
+		LinkedBytes link = new LinkedBytes(sharedBuffer.array(), sharedBuffer.offset(position), length);
+		buffer.position(position + length);
+
+		if(tail != null) { tail.next = link; } else { head = link; }
+		tail = link;
+	}
+}
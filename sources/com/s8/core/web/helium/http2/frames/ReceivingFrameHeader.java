@@ -69,7 +69,13 @@ public class ReceivingFrameHeader implements HTTP2_IOReactive {
 			}
 
 			// now, start to receive body
-			inbound.setState(new ReceivingFramePayload(inbound, frame, header.length));
+			if(frame instanceof HTTP2_DATA_Frame && inbound.isSlicing()) {
+				/* no copy: data kept as slices of the decrypted records */
+				inbound.setState(new ReceivingDataPayload(inbound, (HTTP2_DATA_Frame) frame, header.length));
+			}
+			else {
+				inbound.setState(new ReceivingFramePayload(inbound, frame, header.length));
+			}
 			return HTTP2_Error.NO_ERROR; // go for next reception
 
 		}
@@ -44,6 +44,8 @@ public class ReceivingFramePayload implements HTTP2_IOReactive {
 			//inbound.onFrameReceived(frame);
 			error = frame.onReceived(inbound.getEndpoint());
 			if(error != HTTP2_Error.NO_ERROR) { return error;}
+
+			inbound.onFrameReceived();
 			
 			// start listening for new frame
 			inbound.setState(new ReceivingFrameHeader(inbound));	
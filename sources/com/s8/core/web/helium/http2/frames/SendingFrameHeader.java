@@ -21,6 +21,15 @@ public class SendingFrameHeader implements HTTP2_IOReactive {
 		this.outbound = outbound;
 	}
 
+	/**
+	 * 
+	 * @return true if no frame has been started yet (i.e. next frame can be sent
+	 *         by other means)
+	 */
+	public boolean isIdle() {
+		return frame == null;
+	}
+
 	@Override
 	public HTTP2_Error on(ByteBuffer buffer) {
 		if(frame==null) { // no frame loaded
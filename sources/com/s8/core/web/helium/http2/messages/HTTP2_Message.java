@@ -1,7 +1,9 @@
 package com.s8.core.web.helium.http2.messages;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
 import java.util.function.Consumer;
 
 import com.s8.core.io.bytes.linked.LinkedBytes;
@@ -69,6 +71,7 @@ import com.s8.core.web.helium.http2.headers.WWW_Authenticate;
 import com.s8.core.web.helium.http2.headers.XSpecial;
 import com.s8.core.web.helium.http2.hpack.HPACK_Context;
 import com.s8.core.web.helium.http2.streams.HTTP2_Stream;
+import com.s8.core.web.helium.rx.RxSharedBuffer;
 /**
  * 
  * @author pc
@@ -220,6 +223,11 @@ public class HTTP2_Message implements Iterable<HTTP2_Header> {
 	 */
 	private LinkedBytes dataFragmentHead, dataFragmentTail;
 
+	/**
+	 * pooled buffers referenced by data fragments (received as slices)
+	 */
+	private List<RxSharedBuffer> sharedBuffers;
+
 	/**
 	 * 
 	 * @param context
@@ -287,7 +295,7 @@ public class HTTP2_Message implements Iterable<HTTP2_Header> {
 		if(dataFragmentTail!=null) {
 			dataFragmentTail.next = fragment;
 			LinkedBytes newTail = dataFragmentTail;
-			while(newTail!=null) {
+			while(newTail.next!=null) {
 				newTail = newTail.next;
 			}
 			dataFragmentTail = newTail;
@@ -295,13 +303,45 @@ public class HTTP2_Message implements Iterable<HTTP2_Header> {
 		else if(fragment!=null){
 			dataFragmentHead = fragment;
 			LinkedBytes newTail = fragment;
-			while(newTail!=null) {
+			while(newTail.next!=null) {
 				newTail = newTail.next;
 			}
 			dataFragmentTail = newTail;
 		}
 	}
 
+	/**
+	 * Hand over a (retained) reference to a shared buffer backing data fragments.
+	 * 
+	 * @param sharedBuffer
+	 */
+	public void attach(RxSharedBuffer sharedBuffer) {
+		if(sharedBuffers==null) {
+			sharedBuffers = new ArrayList<>(4);
+		}
+		sharedBuffers.add(sharedBuffer);
+	}
+
+
+	/**
+	 * <p>
+	 * Data fragments received as slices (<code>SSL-slicing_unwrap</code>)
+	 * reference pooled buffers: the application MUST call this method once done
+	 * with the content of the message. Fragments MUST NOT be accessed afterwards.
+	 * </p>
+	 * <p>
+	 * No effect otherwise (or if already released).
+	 * </p>
+	 */
+	public void release() {
+		if(sharedBuffers!=null) {
+			sharedBuffers.forEach(RxSharedBuffer::release);
+			sharedBuffers = null;
+			dataFragmentHead = null;
+			dataFragmentTail = null;
+		}
+	}
+
 	public LinkedBytes getDataFragmentHead() {
 		return dataFragmentHead;
 	}
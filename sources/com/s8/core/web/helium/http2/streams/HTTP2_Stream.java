@@ -1,6 +1,7 @@
 package com.s8.core.web.helium.http2.streams;
 
 import java.util.Iterator;
+import java.util.List;
 
 import com.s8.core.io.bytes.linked.LinkedBytes;
 import com.s8.core.web.helium.http2.HTTP2_Connection;
@@ -13,6 +14,7 @@ import com.s8.core.web.helium.http2.headers.HTTP2_Header;
 import com.s8.core.web.helium.http2.hpack.HPACK_Data;
 import com.s8.core.web.helium.http2.messages.HTTP2_Message;
 import com.s8.core.web.helium.http2.settings.HTTP2_Settings;
+import com.s8.core.web.helium.rx.RxSharedBuffer;
 
 public class HTTP2_Stream {
 	
@@ -116,7 +118,13 @@ public class HTTP2_Stream {
 			return HTTP2_Error.PROTOCOL_ERROR;
 		}
 		receivedMessage.appendDataFragment(fragment);
-		awaitedDataLength-=fragment.length;
+		
+		/* fragment might be a chain (received as slices) */
+		LinkedBytes link = fragment;
+		while(link!=null) {
+			awaitedDataLength-=link.length;
+			link = link.next;
+		}
 
 		// fire message
 		if(awaitedDataLength==0) {
@@ -126,6 +134,24 @@ public class HTTP2_Stream {
 	}
 
 
+	/**
+	 * Push data received as slices of shared buffers: their references are handed
+	 * over to the message (released with it).
+	 * 
+	 * @param fragment
+	 * @param sharedBuffers (retained)
+	 * @return
+	 */
+	public HTTP2_Error pushData(LinkedBytes fragment, List<RxSharedBuffer> sharedBuffers) {
+		if(receivedMessage==null || isWaitingForHeaders) {
+			sharedBuffers.forEach(RxSharedBuffer::release);
+			return HTTP2_Error.PROTOCOL_ERROR;
+		}
+		sharedBuffers.forEach(receivedMessage::attach);
+		return pushData(fragment);
+	}
+
+
 	private void notifyMessage() {
 		endpoint.HTTP2_onMessageReceived(receivedMessage);
 		receivedMessage = null;
@@ -149,6 +175,21 @@ public class HTTP2_Stream {
 	}
 
 
+	/**
+	 * Stream is closed abruptly (RST_STREAM, or connection closed): the message in
+	 * the process of being received (if any) is dropped, and the pooled buffers
+	 * it references are released.
+	 */
+	public void reset() {
+		state = HTTP2_StreamState.CLOSED;
+		if(receivedMessage!=null) {
+			receivedMessage.release();
+			receivedMessage = null;
+		}
+		isWaitingForHeaders = true;
+	}
+
+
 	public final static int OUTFLOW_DATA_BUFFER_SIZE = 16384;
 
 
@@ -167,4 +167,22 @@ public class HTTP2_StreamMapping {
 		return stream;
 	}
 	
+	
+	/**
+	 * Reset all streams (see <code>HTTP2_Stream.reset()</code>) and forget them
+	 */
+	public void reset() {
+		for(int i=0; i<NB_BUCKETS; i++) {
+			Bucket bucket = buckets[i];
+			if(bucket!=null) {
+				HTTP2_Stream stream = bucket.head;
+				while(stream!=null) {
+					stream.reset();
+					stream = stream.next;
+				}
+				buckets[i] = null;
+			}
+		}
+	}
+	
 }
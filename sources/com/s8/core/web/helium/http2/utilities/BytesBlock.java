@@ -101,6 +101,16 @@ public class BytesBlock {
 	}
 
 
+	/**
+	 * 
+	 * @return the bytes not pushed yet, as a buffer (READ mode) backed by the same
+	 *         array (no copy)
+	 */
+	public ByteBuffer toBuffer() {
+		return ByteBuffer.wrap(bytes, index, length-index);
+	}
+
+
 	public boolean isFilled() {
 		return length==index;
 	}
@@ -7,6 +7,7 @@ import com.s8.core.web.helium.http2.HTTP2_IOReactive;
 import com.s8.core.web.helium.http2.HTTP2_Inbound;
 import com.s8.core.web.helium.http2.frames.HTTP2_FrameType;
 import com.s8.core.web.helium.http2.frames.ReceivingFrameHeader;
+import com.s8.core.web.helium.rx.RxTimeout;
 
 /**
  * 
@@ -85,6 +86,9 @@ public class ReceivingPreface implements HTTP2_IOReactive {
 				if(inbound.isVerbose()) {
 					System.out.println("[HTTP2] Preface received!!");
 				}
+
+				/* preface complete: stop counting */
+				inbound.getConnection().cancelTimeout(RxTimeout.HEADER);
 				
 				// reach end
 				ReceivingFrameHeader state = new ReceivingFrameHeader(inbound);
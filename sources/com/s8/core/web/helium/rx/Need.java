@@ -2,9 +2,9 @@ package com.s8.core.web.helium.rx;
 
 
 /**
- * 
+ * Need codes of <code>RxConnection</code> (bit field)
  */
-class Need {
+public final class Need {
 
 	
 
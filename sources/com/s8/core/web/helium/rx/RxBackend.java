@@ -0,0 +1,40 @@
+package com.s8.core.web.helium.rx;
+
+
+/**
+ * <p>
+ * How the connections of a server are driven. Both backends run the same
+ * <code>RxInbound</code> / <code>RxOutbound</code> callbacks, with the same
+ * buffer-mode contracts, so that upper layers (SSL, HTTP/2) are unaware of
+ * the choice.
+ * </p>
+ *
+ * @author pierreconvert
+ *
+ */
+public enum RxBackend {
+
+
+	/**
+	 * Non-blocking channels multiplexed by selector loops (see
+	 * <code>RxReactor</code>)
+	 */
+	REACTOR,
+
+
+	/**
+	 * Blocking channels, each connection served by its own pair of virtual
+	 * threads (see <code>RxVirtualDriver</code>)
+	 */
+	VIRTUAL_THREADS;
+
+
+	/**
+	 *
+	 * @param name (case insensitive, '-' accepted in place of '_')
+	 * @return
+	 */
+	public static RxBackend parse(String name) {
+		return valueOf(name.trim().toUpperCase().replace('-', '_'));
+	}
+}
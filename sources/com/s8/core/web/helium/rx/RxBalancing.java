@@ -0,0 +1,106 @@
+package com.s8.core.web.helium.rx;
+
+import java.nio.channels.SocketChannel;
+
+
+/**
+ * <p>
+ * Strategy used by the acceptor to spread newly accepted channels across the
+ * reactors of a server.
+ * </p>
+ *
+ * @author pierreconvert
+ *
+ */
+public enum RxBalancing {
+
+
+	/**
+	 * Reactors are picked in turn, regardless of their current load.
+	 */
+	ROUND_ROBIN {
+		public @Override RxReactor select(RxReactor[] reactors, int sequence) {
+			return reactors[Math.floorMod(sequence, reactors.length)];
+		}
+	},
+
+
+	/**
+	 * The reactor currently holding the fewest connections is picked. Counts are
+	 * read without synchronization, so this is a best-effort choice.
+	 */
+	LEAST_CONNECTIONS {
+		public @Override RxReactor select(RxReactor[] reactors, int sequence) {
+			RxReactor selected = reactors[0];
+			int nMin = selected.getConnectionCount();
+			for(int i = 1; i < reactors.length; i++) {
+				int n = reactors[i].getConnectionCount();
+				if(n < nMin) {
+					selected = reactors[i];
+					nMin = n;
+				}
+			}
+			return selected;
+		}
+	},
+
+
+	/**
+	 * <p>
+	 * Connections are grouped by the NIC receive queue their packets come
+	 * through (<code>SO_INCOMING_NAPI_ID</code>, Linux): all connections of a
+	 * queue end up on the same reactor, so that, provided the queue IRQ and the
+	 * reactor thread are pinned on the same core (<code>irqbalance</code>,
+	 * <code>taskset</code>: outside the JVM, see <code>DEDICATED_THREADS</code>),
+	 * packets are processed where they are received.
+	 * </p>
+	 * <p>
+	 * Admission (before accepting) is round robin. Once accepted, the connection
+	 * moves to the reactor of its queue if it has room. Falls back to round
+	 * robin when the NAPI ID is unknown (loopback, not supported...).
+	 * </p>
+	 */
+	NAPI_ID {
+		public @Override RxReactor select(RxReactor[] reactors, int sequence) {
+			return ROUND_ROBIN.select(reactors, sequence);
+		}
+
+		public @Override RxReactor reselect(RxReactor[] reactors, SocketChannel socketChannel, RxReactor admitted) {
+			int napiId = RxSocketConfiguration.getIncomingNapiId(socketChannel);
+			return napiId > 0 ? reactors[napiId % reactors.length] : admitted;
+		}
+	};
+
+
+	/**
+	 *
+	 * @param reactors the reactors of the server (at least one)
+	 * @param sequence the acceptance sequence number
+	 * @return the reactor that will own the next connection
+	 */
+	public abstract RxReactor select(RxReactor[] reactors, int sequence);
+
+
+	/**
+	 * Called once the channel has been accepted (i.e. when it can be inspected)
+	 *
+	 * @param reactors the reactors of the server
+	 * @param socketChannel the accepted channel
+	 * @param admitted the reactor that has admitted the connection
+	 * @return the reactor that should own the connection (<code>admitted</code>
+	 *         by default)
+	 */
+	public RxReactor reselect(RxReactor[] reactors, SocketChannel socketChannel, RxReactor admitted) {
+		return admitted;
+	}
+
+
+	/**
+	 *
+	 * @param name (case insensitive, '-' accepted in place of '_')
+	 * @return
+	 */
+	public static RxBalancing parse(String name) {
+		return valueOf(name.trim().toUpperCase().replace('-', '_'));
+	}
+}
@@ -0,0 +1,350 @@
+package com.s8.core.web.helium.rx;
+
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/**
+ * <p>
+ * Pool of direct <code>ByteBuffer</code>s used as network and application
+ * buffers by the Rx and SSL layers.
+ * </p>
+ * <p>
+ * Heap buffers can be pooled the same way (<code>POOLED_HEAP</code>), for
+ * buffers whose backing array is handed out to upper layers (see
+ * <code>RxSharedBuffer</code>).
+ * </p>
+ * <p>
+ * Buffers are organized in size classes (powers of two, with an intermediate
+ * 1.5x class in between: 4K, 6K, 8K, 12K, 16K, 24K...), so that a typical TLS
+ * packet buffer (~17K) wastes at most a third of its capacity. Each size class
+ * carves its buffers out of large direct slabs, so that the number of native
+ * allocations stays low and the memory of a closed connection goes straight to
+ * the next one. Requests above <code>MAX_CAPACITY</code> are served by plain
+ * (unpooled) direct allocations.
+ * </p>
+ * <p>
+ * Borrowed buffers have a capacity <b>at least</b> equal to the requested one,
+ * and are returned cleared. Slabs are never freed: the pool footprint is the
+ * high-water mark of borrowed buffers.
+ * </p>
+ * <p>
+ * Thread safe. A buffer MUST be released exactly once, and MUST NOT be used
+ * once released.
+ * </p>
+ *
+ * @author pierreconvert
+ *
+ */
+public class RxBufferPool {
+
+
+	public final static int MIN_CAPACITY = 4096;
+
+	public final static int MAX_CAPACITY = 1 << 20;
+
+	/**
+	 * Targeted size of a slab (in bytes)
+	 */
+	public final static int SLAB_SIZE = 1 << 20;
+
+
+	/**
+	 * JVM-wide pool of direct buffers
+	 */
+	public final static RxBufferPool DIRECT = new RxBufferPool(true);
+
+
+	/**
+	 * JVM-wide pool of heap buffers (array backed, slab slices)
+	 */
+	public final static RxBufferPool POOLED_HEAP = new RxBufferPool(true, false);
+
+
+	/**
+	 * No pooling: plain heap buffers, allocated on each request and left to the GC
+	 * on release
+	 */
+	public final static RxBufferPool HEAP = new RxBufferPool(false);
+
+
+	/**
+	 * Buffers of one size class
+	 */
+	private static class SizeClass {
+
+		final int capacity;
+
+		final int nBuffersPerSlab;
+
+		final Queue<ByteBuffer> free = new ConcurrentLinkedQueue<>();
+
+		final AtomicInteger nSlabs = new AtomicInteger(0);
+
+		final AtomicInteger nBorrowed = new AtomicInteger(0);
+
+		final boolean isDirect;
+
+		public SizeClass(int capacity, boolean isDirect) {
+			super();
+			this.capacity = capacity;
+			this.isDirect = isDirect;
+			this.nBuffersPerSlab = Math.max(1, SLAB_SIZE / capacity);
+		}
+
+		ByteBuffer borrow() {
+			ByteBuffer buffer = free.poll();
+			if(buffer == null) {
+				synchronized (this) {
+					/* another thread may have allocated a slab in the meantime */
+					buffer = free.poll();
+					if(buffer == null) {
+						int slabSize = nBuffersPerSlab * capacity;
+						ByteBuffer slab = isDirect ? ByteBuffer.allocateDirect(slabSize) : ByteBuffer.allocate(slabSize);
+						for(int i = 1; i < nBuffersPerSlab; i++) {
+							free.add(slab.slice(i * capacity, capacity));
+						}
+						buffer = slab.slice(0, capacity);
+						nSlabs.incrementAndGet();
+					}
+				}
+			}
+			nBorrowed.incrementAndGet();
+			return buffer;
+		}
+
+		void release(ByteBuffer buffer) {
+			buffer.clear();
+			nBorrowed.decrementAndGet();
+			free.add(buffer);
+		}
+	}
+
+
+
+	private final boolean isPooling;
+
+	private final boolean isDirect;
+
+	private final SizeClass[] sizeClasses;
+
+
+	/**
+	 * Number of unpooled (oversized or heap) buffers currently borrowed
+	 */
+	private final AtomicInteger nUnpooledBorrowed = new AtomicInteger(0);
+
+	/**
+	 * Bytes of unpooled (oversized or heap) buffers currently borrowed
+	 */
+	private final AtomicLong unpooledBorrowedBytes = new AtomicLong(0);
+
+
+	/**
+	 *
+	 * @param isPooling (pooled buffers are direct)
+	 */
+	public RxBufferPool(boolean isPooling) {
+		this(isPooling, isPooling);
+	}
+
+
+	/**
+	 *
+	 * @param isPooling
+	 * @param isDirect (pooled buffers only, unpooled ones are always heap buffers)
+	 */
+	public RxBufferPool(boolean isPooling, boolean isDirect) {
+		super();
+		this.isPooling = isPooling;
+		this.isDirect = isPooling && isDirect;
+
+		int n = 0;
+		SizeClass[] sizeClasses = new SizeClass[64];
+		for(int capacity = MIN_CAPACITY; capacity <= MAX_CAPACITY; capacity *= 2) {
+			sizeClasses[n++] = new SizeClass(capacity, this.isDirect);
+			int intermediate = capacity + capacity / 2;
+			if(intermediate < MAX_CAPACITY) { sizeClasses[n++] = new SizeClass(intermediate, this.isDirect); }
+		}
+		this.sizeClasses = new SizeClass[n];
+		System.arraycopy(sizeClasses, 0, this.sizeClasses, 0, n);
+	}
+
+
+	/**
+	 *
+	 * @return true if buffers are pooled
+	 */
+	public boolean isPooling() {
+		return isPooling;
+	}
+
+
+	/**
+	 *
+	 * @return true if borrowed buffers are direct (otherwise, they are array
+	 *         backed)
+	 */
+	public boolean isDirect() {
+		return isDirect;
+	}
+
+
+	/**
+	 * Thread safe
+	 *
+	 * @param capacity the minimum capacity
+	 * @return a cleared buffer (WRITE mode) of capacity at least
+	 *         <code>capacity</code>
+	 */
+	public ByteBuffer borrow(int capacity) {
+		if(isPooling) {
+			SizeClass sizeClass = find(capacity);
+			if(sizeClass != null) {
+				return sizeClass.borrow();
+			}
+			else {
+				nUnpooledBorrowed.incrementAndGet();
+				unpooledBorrowedBytes.addAndGet(capacity);
+				return isDirect ? ByteBuffer.allocateDirect(capacity) : ByteBuffer.allocate(capacity);
+			}
+		}
+		else {
+			nUnpooledBorrowed.incrementAndGet();
+			unpooledBorrowedBytes.addAndGet(capacity);
+			return ByteBuffer.allocate(capacity);
+		}
+	}
+
+
+	/**
+	 * Thread safe. Give back a buffer obtained from <code>borrow</code>.
+	 *
+	 * @param buffer (<code>null</code> is ignored)
+	 */
+	public void release(ByteBuffer buffer) {
+		if(buffer == null) { return; }
+
+		SizeClass sizeClass = isPooling && buffer.isDirect() == isDirect ? find(buffer.capacity()) : null;
+		if(sizeClass != null && sizeClass.capacity == buffer.capacity()) {
+			sizeClass.release(buffer);
+		}
+		else {
+			/* unpooled: left to the GC */
+			nUnpooledBorrowed.decrementAndGet();
+			unpooledBorrowedBytes.addAndGet(-buffer.capacity());
+		}
+	}
+
+
+	/**
+	 *
+	 * @param capacity
+	 * @return the smallest size class fitting capacity, <code>null</code> if
+	 *         oversized
+	 */
+	private SizeClass find(int capacity) {
+		for(SizeClass sizeClass : sizeClasses) {
+			if(sizeClass.capacity >= capacity) { return sizeClass; }
+		}
+		return null;
+	}
+
+
+
+	/* <metrics> */
+
+
+	/**
+	 *
+	 * @return the number of buffers currently borrowed
+	 */
+	public int getBorrowedCount() {
+		int n = nUnpooledBorrowed.get();
+		for(SizeClass sizeClass : sizeClasses) { n += sizeClass.nBorrowed.get(); }
+		return n;
+	}
+
+
+	/**
+	 *
+	 * @return the total capacity of the buffers currently borrowed
+	 */
+	public long getBorrowedBytes() {
+		long n = unpooledBorrowedBytes.get();
+		for(SizeClass sizeClass : sizeClasses) {
+			n += (long) sizeClass.nBorrowed.get() * sizeClass.capacity;
+		}
+		return n;
+	}
+
+
+	/**
+	 *
+	 * @return the direct memory held by the slabs (borrowed or free)
+	 */
+	public long getSlabBytes() {
+		long n = 0;
+		for(SizeClass sizeClass : sizeClasses) {
+			n += (long) sizeClass.nSlabs.get() * sizeClass.nBuffersPerSlab * sizeClass.capacity;
+		}
+		return n;
+	}
+
+
+	/**
+	 *
+	 * @return the capacities of the size classes (ascending)
+	 */
+	public int[] getSizeClasses() {
+		int n = sizeClasses.length;
+		int[] capacities = new int[n];
+		for(int i = 0; i < n; i++) { capacities[i] = sizeClasses[i].capacity; }
+		return capacities;
+	}
+
+
+	/**
+	 *
+	 * @param index index of the size class (see <code>getSizeClasses()</code>)
+	 * @return the number of buffers of this size class currently borrowed
+	 */
+	public int getBorrowedCount(int index) {
+		return sizeClasses[index].nBorrowed.get();
+	}
+
+
+	/**
+	 *
+	 * @param index index of the size class (see <code>getSizeClasses()</code>)
+	 * @return the number of buffers of this size class ready to be borrowed
+	 */
+	public int getFreeCount(int index) {
+		return sizeClasses[index].free.size();
+	}
+
+
+	/**
+	 *
+	 * @return a one-line summary of the pool occupancy (for logging)
+	 */
+	public String printOccupancy() {
+		StringBuilder builder = new StringBuilder();
+		builder.append("[RxBufferPool] borrowed: ").append(getBorrowedCount());
+		builder.append(" buffers (").append(getBorrowedBytes() / 1024).append(" KB)");
+		builder.append(", slabs: ").append(getSlabBytes() / 1024).append(" KB");
+		for(SizeClass sizeClass : sizeClasses) {
+			int nBorrowed = sizeClass.nBorrowed.get();
+			if(nBorrowed > 0 || sizeClass.nSlabs.get() > 0) {
+				builder.append(", ").append(sizeClass.capacity / 1024).append("K: ").append(nBorrowed);
+				builder.append('/').append(sizeClass.nSlabs.get() * sizeClass.nBuffersPerSlab);
+			}
+		}
+		return builder.toString();
+	}
+
+	/* </metrics> */
+}
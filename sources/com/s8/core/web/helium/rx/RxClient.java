@@ -2,6 +2,8 @@ package com.s8.core.web.helium.rx;
 
 import java.io.IOException;
 import java.net.InetSocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.Selector;
 import java.nio.channels.SocketChannel;
@@ -21,6 +23,8 @@ public abstract class RxClient implements RxEndpoint {
 
 	private AtomicBoolean isRunning;
 
+	public boolean rxIsVerbose;
+
 
 	public RxClient() {
 		super();
@@ -53,11 +57,20 @@ public abstract class RxClient implements RxEndpoint {
 		// setup
 		this.hostname = configuration.hostname;
 		this.port = configuration.port;
+		this.rxIsVerbose = configuration.isRxVerbose;
 		isRunning = new AtomicBoolean(false);
 
 		
-		SocketChannel socketChannel = SocketChannel.open();
-		boolean isEstablished = socketChannel.connect(new InetSocketAddress(hostname, port));
+		SocketChannel socketChannel;
+		boolean isEstablished;
+		if(configuration.unixSocketPath != null) {
+			socketChannel = SocketChannel.open(StandardProtocolFamily.UNIX);
+			isEstablished = socketChannel.connect(UnixDomainSocketAddress.of(configuration.unixSocketPath));
+		}
+		else {
+			socketChannel = SocketChannel.open();
+			isEstablished = socketChannel.connect(new InetSocketAddress(hostname, port));
+		}
 		socketChannel.configureBlocking(false);
 
 		selector = Selector.open();
@@ -85,7 +98,9 @@ public abstract class RxClient implements RxEndpoint {
 		isRunning.set(true);
 
 		while(isRunning.get()) {
-			System.out.println("\t->client loop started");
+			if(rxIsVerbose) {
+				System.out.println("\t->client loop started");
+			}
 			try {
 
 				/* <update> */
@@ -1,6 +1,8 @@
 package com.s8.core.web.helium.rx;
 
 import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.SocketChannel;
 
@@ -30,12 +32,30 @@ public abstract class RxConnection {
 
 
 	/**
-	 * lock for needs
+	 * Need bit field (see <code>Need</code>), updated lock-free through
+	 * <code>NEED</code> compare-and-set. The <code>UPDATE_QUEUED</code> bit tracks
+	 * whether the connection already sits in its reactor's update queue, so that
+	 * a single CAS tells whether a change must be queued (and the reactor woken up).
 	 */
-	private final Object needLock = new Object();
+	private volatile int need = 0;
 
 
-	private int need = 0;
+	/**
+	 * internal bit of <code>need</code>
+	 */
+	private final static int UPDATE_QUEUED = 0x40000000;
+
+
+	private final static VarHandle NEED;
+
+	static {
+		try {
+			NEED = MethodHandles.lookup().findVarHandle(RxConnection.class, "need", int.class);
+		}
+		catch (ReflectiveOperationException exception) {
+			throw new ExceptionInInitializerError(exception);
+		}
+	}
 
 
 	/**
@@ -45,9 +65,118 @@ public abstract class RxConnection {
 
 
 	/**
-	 * the current state of connection
+	 * the current state of connection (volatile: read by the threads of
+	 * <code>RxVirtualDriver</code>)
+	 */
+	volatile State state;
+
+
+	/**
+	 * The reactor owning this connection's key (server-side only, 
+	 * <code>null</code> otherwise). Set by the reactor upon registration.
+	 */
+	volatile RxReactor reactor;
+
+
+	/**
+	 * Generational identifier in its reactor's registry
+	 * (<code>RxConnectionRegistry.NO_IDENTIFIER</code> if not registered)
+	 */
+	int identifier = RxConnectionRegistry.NO_IDENTIFIER;
+
+
+	/**
+	 * The driver of this connection when served by virtual threads (see
+	 * <code>RxBackend.VIRTUAL_THREADS</code>), <code>null</code> otherwise.
+	 */
+	volatile RxVirtualDriver driver;
+
+
+	/**
+	 * Run by the owning reactor once this connection has been closed and
+	 * removed from its registry (e.g. gives back a per-target slot of
+	 * <code>RxMultiClient</code>), <code>null</code> if none.
+	 */
+	Runnable onReleased;
+
+
+	private final static RxTimeout[] TIMEOUTS = RxTimeout.values();
+
+
+	/**
+	 * timeout durations (ms, 0 if disabled), indexed by <code>RxTimeout</code>
+	 * ordinal
+	 */
+	private final long[] timeouts = new long[TIMEOUTS.length];
+
+
+	/**
+	 * armed deadlines (0 if not armed), indexed by <code>RxTimeout</code> ordinal.
+	 * The <code>IDLE</code> deadline is lazily pushed back on expiry according
+	 * to <code>lastActivity</code>, so that I/O never has to touch the wheel.
+	 */
+	private final long[] deadlines = new long[TIMEOUTS.length];
+
+
+	/**
+	 * time of the last I/O readiness (reactor clock)
+	 */
+	long lastActivity;
+
+
+	/**
+	 * time of the last direct write made off the reactor thread
+	 * (<code>RxTimingWheel.now()</code> clock), folded into
+	 * <code>lastActivity</code> by the reactor when deadlines expire
+	 */
+	private volatile long lastOffReactorActivity;
+
+
+	/**
+	 * single wheel node, scheduled at the earliest armed deadline
+	 */
+	private final RxTimer timer = new RxTimer() {
+		protected @Override void onExpired(long now) {
+			onDeadline(now);
+		}
+	};
+
+
+	/**
+	 * Per-loop budgets (see <code>RxWebConfiguration.readBudget</code>,
+	 * <code>writeBudget</code>, <code>frameBudget</code>)
+	 */
+	private int readBudget = Integer.MAX_VALUE, writeBudget = Integer.MAX_VALUE, frameBudget = Integer.MAX_VALUE;
+
+
+	/**
+	 * what is left of the budgets in loop <code>budgetLoop</code>
+	 */
+	private int readBytesLeft, writeBytesLeft, framesLeft;
+
+	private long budgetLoop = -1;
+
+
+	/**
+	 * true while queued on the reactor's ready queue
+	 */
+	private boolean isReadyQueued = false;
+
+
+	/**
+	 * true if the inbound has data left that upper layers have deferred to the
+	 * next loop
+	 */
+	private boolean isInboundDeferred = false;
+
+
+	/**
+	 * true while buffers are given back to the pool (idle connection), volatile
+	 * since read by direct writers
 	 */
-	State state;
+	private volatile boolean isBufferReleased = false;
+
+
 
 
 	// private AtomicBoolean isConnectingRequested;
@@ -100,17 +229,31 @@ public abstract class RxConnection {
 		// configure socket
 		RxSocketConfiguration socketConfiguration = configuration.socketConfiguration;
 		if (socketConfiguration != null) {
-			socketConfiguration.setup(socketChannel.socket(), rxIsLayerVerbose);
+			socketConfiguration.setup(socketChannel, rxIsLayerVerbose);
 		}
 
 		if (rxIsLayerVerbose) {
-			RxSocketConfiguration.read(socketChannel.socket());
+			RxSocketConfiguration.read(socketChannel);
 		}
 
 
 
 		state = socketChannel.isConnected() ? State.CONNECTED : State.NOT_INITIATED;
 
+		/* <timeouts> */
+		timeouts[RxTimeout.IDLE.ordinal()] = configuration.idleTimeout;
+		timeouts[RxTimeout.HANDSHAKE.ordinal()] = configuration.handshakeTimeout;
+		timeouts[RxTimeout.HEADER.ordinal()] = configuration.headerTimeout;
+		timeouts[RxTimeout.CONNECT.ordinal()] = configuration.connectTimeout;
+		timeouts[RxTimeout.BUFFER_RELEASE.ordinal()] = configuration.bufferReleaseTimeout;
+		/* </timeouts> */
+
+		/* <budgets> */
+		if(configuration.readBudget > 0) { readBudget = configuration.readBudget; }
+		if(configuration.writeBudget > 0) { writeBudget = configuration.writeBudget; }
+		if(configuration.frameBudget > 0) { frameBudget = configuration.frameBudget; }
+		/* </budgets> */
+
 
 		// this.isClosingRequested = new AtomicBoolean(false);
 		// this.isConnectingRequested = new AtomicBoolean(false);
@@ -148,7 +291,7 @@ public abstract class RxConnection {
 		state = State.WAITING_FOR_CONNECTION_COMPLETION;
 
 		// notify selector
-		getEndpoint().keySelectorWakeup();
+		signal();
 	}
 
 	/**
@@ -164,11 +307,8 @@ public abstract class RxConnection {
 		}
 		</DEBUG> */
 
-		// update flag
+		// update flag (notify selector only if changed)
 		addNeed(Need.RECEIVE);
-
-		// notify selector
-		getEndpoint().keySelectorWakeup();
 	}
 
 
@@ -180,26 +320,104 @@ public abstract class RxConnection {
 		}
 	 	</DEBUG> */
 
-		// update flag
-		addNeed(Need.SEND);
-
-		// notify selector
-		getEndpoint().keySelectorWakeup();
+		/* opt-in fast path: idle outbound written right away by the calling thread */
+		RxOutbound outbound = getOutbound();
+		if(outbound != null && outbound.tryWriteDirect()) { return; }
 
+		// update flag (notify selector only if changed)
+		addNeed(Need.SEND);
 	}
 
 	public abstract void close();
 
-	public void addNeed(int code) {
-		synchronized (needLock) { need |= code; }
+	/**
+	 * Thread safe, lock-free
+	 * 
+	 * @param code
+	 * @return true if the need word has actually changed
+	 */
+	public boolean addNeed(int code) {
+		RxReactor reactor = this.reactor;
+		int queued = reactor != null ? UPDATE_QUEUED : 0;
+		int current;
+		do {
+			current = need;
+			if((current & code) == code) { return false; /* unchanged: no update, no wakeup */ }
+		}
+		while(!NEED.weakCompareAndSet(this, current, current | code | queued));
+		onNeedChanged(reactor, current);
+		return true;
 	}
 
-	public void clearNeed(int code) {
-		synchronized (needLock) { need &= ~code; }
+
+	/**
+	 * Thread safe, lock-free
+	 * 
+	 * @param code
+	 * @return true if the need word has actually changed
+	 */
+	public boolean clearNeed(int code) {
+		RxReactor reactor = this.reactor;
+		int queued = reactor != null ? UPDATE_QUEUED : 0;
+		int current;
+		do {
+			current = need;
+			if((current & code) == 0) { return false; /* unchanged: no update, no wakeup */ }
+		}
+		while(!NEED.weakCompareAndSet(this, current, (current & ~code) | queued));
+		onNeedChanged(reactor, current);
+		return true;
 	}
 
+
+	/**
+	 * Thread safe, lock-free
+	 * 
+	 * @param code
+	 * @return
+	 */
 	public boolean hasNeed(int code) {
-		synchronized (needLock) { return (need & code) == code; }
+		return (need & code) == code;
+	}
+
+
+	/**
+	 * 
+	 * @param reactor the reactor read before the transition
+	 * @param previous the need word before the transition
+	 */
+	private void onNeedChanged(RxReactor reactor, int previous) {
+		if(reactor != null) {
+			/* only the transition that has set UPDATE_QUEUED enqueues */
+			if((previous & UPDATE_QUEUED) == 0) { reactor.enqueue(this); }
+		}
+		else if(driver != null) {
+			driver.onNeedChanged();
+		}
+		else if(key != null) {
+			/* interest ops are recomputed on every loop */
+			key.selector().wakeup();
+		}
+	}
+
+
+	/**
+	 * /!\ REACTOR OPERATED
+	 * 
+	 * Called by the reactor when it removes this connection from its update queue.
+	 */
+	void clearUpdateQueued() {
+		NEED.getAndBitwiseAnd(this, ~UPDATE_QUEUED);
+	}
+
+
+	/**
+	 * 
+	 * @return the identifier of this connection in its reactor, 
+	 * <code>RxConnectionRegistry.NO_IDENTIFIER</code> if not registered (or closed)
+	 */
+	public int getIdentifier() {
+		return identifier;
 	}
 
 
@@ -212,78 +430,523 @@ public abstract class RxConnection {
 		return socketChannel;
 	}
 
+	/**
+	 * Wake up the selector this connection is registered on (and only this one).
+	 */
 	public void wakeup() {
-		getEndpoint().keySelectorWakeup();
+		if(reactor != null) {
+			reactor.wakeup();
+		}
+		else if(driver != null) {
+			driver.onNeedChanged();
+		}
+		else if(key != null) {
+			key.selector().wakeup();
+		}
 	}
 
 
+	/**
+	 * 
+	 * @return true if this connection is driven by a reactor (and can therefore
+	 *         be handed tasks with <code>post()</code>)
+	 */
+	public boolean isReactorDriven() {
+		return reactor != null;
+	}
+
 
+	/**
+	 * Thread safe. Run <code>task</code> on the reactor owning this connection, at
+	 * the beginning of its next loop (i.e. like any other callback). Dropped if
+	 * the connection is no longer connected by then.
+	 * 
+	 * @param task
+	 * @return false if this connection is not driven by a reactor (task is not run)
+	 */
+	public boolean post(Runnable task) {
+		RxReactor reactor = this.reactor;
+		if(reactor == null) { return false; }
+		reactor.post(() -> {
+			if(state == State.CONNECTED) { task.run(); }
+		});
+		return true;
+	}
 
-	/* <connection-processing> */
 
 	/**
-	 * /!\ ENDPOINT OPERATED, for thread safety reasons
+	 * Request an interest-ops update from the selector loop
+	 */
+	void signal() {
+		RxReactor reactor = this.reactor;
+		if(reactor != null) {
+			/* queued and collapsed by reactor */
+			int previous = (int) NEED.getAndBitwiseOr(this, UPDATE_QUEUED);
+			if((previous & UPDATE_QUEUED) == 0) { reactor.enqueue(this); }
+		}
+		else if(driver != null) {
+			driver.onNeedChanged();
+		}
+		else if(key != null) {
+			/* interest ops are recomputed on every loop */
+			key.selector().wakeup();
+		}
+	}
+
+
+
+
+	/* <timeouts> */
+
+
+	/**
+	 * Override timeout duration set by configuration. Applies to the next arming.
 	 * 
-	 * MUST only be called by the endpoint
-	 * Update interest set
+	 * @param timeout
+	 * @param duration (ms), 0 to disable
 	 */
-	void updateInterestOps() {
+	public void setTimeout(RxTimeout timeout, long duration) {
+		timeouts[timeout.ordinal()] = duration;
+	}
+
+
+	/**
+	 * /!\ REACTOR OPERATED (or before registration), for thread safety reasons
+	 * 
+	 * Arm (or re-arm) deadline <code>timeout</code>, from now on. No-op if this
+	 * timeout is disabled. Called from another thread (e.g. by a direct write),
+	 * arming is handed over to the reactor.
+	 * 
+	 * @param timeout
+	 */
+	public void armTimeout(RxTimeout timeout) {
+		RxReactor reactor = this.reactor;
+		if(reactor != null && !reactor.isReactorThread()) {
+			reactor.post(() -> armTimeout(timeout));
+			return;
+		}
+
+		long duration = timeouts[timeout.ordinal()];
+		if(duration > 0) {
+			long deadline = RxTimingWheel.now() + duration;
+			deadlines[timeout.ordinal()] = deadline;
 
+			if(reactor != null && (!timer.isScheduled() || deadline < timer.deadline)) {
+				reactor.timers.schedule(timer, deadline);
+			}
+		}
+	}
 
-		if(socketChannel.isOpen()) {
 
-			int ops = 0;
-			switch(state) {
+	/**
+	 * /!\ REACTOR OPERATED (or before registration), for thread safety reasons
+	 * 
+	 * Cancellation is lazy: the wheel node stays scheduled and simply finds
+	 * nothing to expire.
+	 * 
+	 * @param timeout
+	 */
+	public void cancelTimeout(RxTimeout timeout) {
+		deadlines[timeout.ordinal()] = 0;
+	}
+
 
-			case WAITING_FOR_CONNECTION_COMPLETION:
+	/**
+	 * 
+	 * @param timeout
+	 * @return true if <code>timeout</code> is currently armed
+	 */
+	public boolean isTimeoutArmed(RxTimeout timeout) {
+		return deadlines[timeout.ordinal()] != 0;
+	}
 
-				/* <update-observed> */
-				ops |= SelectionKey.OP_CONNECT;
 
-				break;
+	/**
+	 * /!\ REACTOR OPERATED
+	 * 
+	 * Called by the reactor right after registration: arm idle deadline and
+	 * schedule the ones armed so far.
+	 */
+	void startTimeouts() {
+		lastActivity = reactor.now;
+		armTimeout(RxTimeout.IDLE);
+		armTimeout(RxTimeout.BUFFER_RELEASE);
+		scheduleTimer();
+	}
 
-			case CONNECTED :
 
-				if(hasNeed(Need.RECEIVE)) { ops |= SelectionKey.OP_READ; }
+	/**
+	 * /!\ REACTOR OPERATED
+	 * 
+	 * @param now
+	 */
+	private void onDeadline(long now) {
+		for(RxTimeout timeout : TIMEOUTS) {
+			int index = timeout.ordinal();
+			long deadline = deadlines[index];
+			if(deadline != 0) {
+
+				/* connection completed since arming: drop */
+				if(timeout == RxTimeout.CONNECT && state != State.WAITING_FOR_CONNECTION_COMPLETION) {
+					deadlines[index] = 0;
+					continue;
+				}
 
-				if(hasNeed(Need.SEND)) { ops |= SelectionKey.OP_WRITE; }
+				/* activity since arming: push back */
+				if(timeout == RxTimeout.IDLE || timeout == RxTimeout.BUFFER_RELEASE) {
+					lastActivity = Math.max(lastActivity, lastOffReactorActivity);
+					deadline = lastActivity + timeouts[index];
+					deadlines[index] = deadline;
+				}
 
-				break;
+				if(deadline <= now) {
+					deadlines[index] = 0;
 
-			case NOT_INITIATED:
-			case CLOSING :
-			case CLOSED : 
-				// no interest ops
-				break;
+					/* not closing: go on with other deadlines */
+					if(timeout == RxTimeout.BUFFER_RELEASE) {
+						releaseIdleBuffers();
+						continue;
+					}
+
+					rx_onTimeout(timeout);
+					return;
+				}
+			}
+		}
+		scheduleTimer();
+	}
+
+
+	/**
+	 * /!\ REACTOR OPERATED
+	 * 
+	 * Schedule timer at the earliest armed deadline (if any)
+	 */
+	private void scheduleTimer() {
+		if(state == State.CLOSED) { return; }
+		long earliest = 0;
+		for(long deadline : deadlines) {
+			if(deadline != 0 && (earliest == 0 || deadline < earliest)) { earliest = deadline; }
+		}
+		if(earliest != 0 && (!timer.isScheduled() || earliest < timer.deadline)) {
+			reactor.timers.schedule(timer, earliest);
+		}
+	}
+
+
+	/**
+	 * /!\ REACTOR OPERATED
+	 * 
+	 * Deadline <code>timeout</code> has expired. Default behaviour is to close
+	 * the connection.
+	 * 
+	 * @param timeout
+	 */
+	protected void rx_onTimeout(RxTimeout timeout) {
+		if(rxIsLayerVerbose) {
+			System.out.println("[RxConnection] "+timeout+" timeout expired: closing");
+		}
+		rx_initiateClosing();
+	}
+
+
+	/* </timeouts> */
+
+
+
+	/* <idle-buffers> */
+
+
+	/**
+	 * /!\ REACTOR OPERATED
+	 * 
+	 * Idle connection: give buffers back to the pool, if nothing is left in them
+	 * (re-armed otherwise). Idle keep-alive connections then only cost their
+	 * key and objects, instead of their (network and, for TLS, application)
+	 * buffers.
+	 */
+	private void releaseIdleBuffers() {
+		if(state != State.CONNECTED || isBufferReleased) { return; }
+
+		RxInbound inbound = getInbound();
+		RxOutbound outbound = getOutbound();
+
+		/* write ownership: no direct write in progress, none starting */
+		if(!isReadyQueued && !isInboundDeferred && !hasNeed(Need.SEND) && outbound.writeLock.tryLock()) {
+			try {
+				if(inbound.rxIsBufferIdle() && outbound.isBufferIdle()) {
+					isBufferReleased = true;
+					inbound.rxReleaseBuffers();
+					outbound.releaseBuffers();
+
+					if(rxIsLayerVerbose) {
+						System.out.println("[RxConnection] idle: buffers released");
+					}
+					return;
+				}
+			}
+			finally {
+				outbound.writeLock.unlock();
 			}
+		}
 
-			// if filter has been updated
-			if (ops != observerFilter) {
+		/* busy: try again later */
+		armTimeout(RxTimeout.BUFFER_RELEASE);
+	}
 
-				// update cache
-				observerFilter = ops;
 
-				// update key
-				key.interestOps(observerFilter);
+	/**
+	 * /!\ REACTOR OPERATED
+	 * 
+	 * Reacquire buffers released while idle (no-op if not released)
+	 */
+	private void reacquireBuffers() {
+		if(isBufferReleased) {
+			RxOutbound outbound = getOutbound();
+			outbound.writeLock.lock();
+			try {
+				getInbound().rxReacquireBuffers();
+				outbound.reacquireBuffers();
+				isBufferReleased = false;
+			}
+			finally {
+				outbound.writeLock.unlock();
 			}
-			/* </update-observed> */
+			armTimeout(RxTimeout.BUFFER_RELEASE);
+		}
+	}
+
 
+	/**
+	 * Thread safe
+	 * 
+	 * @return true if buffers are currently given back to the pool (idle
+	 *         connection)
+	 */
+	public boolean isBufferReleased() {
+		return isBufferReleased;
+	}
+
+
+	/* </idle-buffers> */
+
+
+
+	/* <budgets> */
+
+
+	/**
+	 * /!\ REACTOR OPERATED
+	 * 
+	 * Refill budgets on first use in a new loop.
+	 */
+	private void refillBudgets() {
+		long loop = reactor.loops;
+		if(budgetLoop != loop) {
+			budgetLoop = loop;
+			readBytesLeft = readBudget;
+			writeBytesLeft = writeBudget;
+			framesLeft = frameBudget;
+		}
+	}
+
+
+	/**
+	 * /!\ REACTOR OPERATED
+	 * 
+	 * @return the number of bytes this connection can still read in this loop
+	 */
+	int getReadBytesLeft() {
+		if(reactor == null) { return Integer.MAX_VALUE; }
+		refillBudgets();
+		return readBytesLeft;
+	}
+
+
+	/**
+	 * /!\ REACTOR OPERATED
+	 * 
+	 * @param nBytes
+	 */
+	void onBytesRead(int nBytes) {
+		if(reactor != null) { readBytesLeft -= nBytes; }
+	}
+
+
+	/**
+	 * /!\ REACTOR OPERATED
+	 * 
+	 * @return the number of bytes this connection can still write in this loop
+	 */
+	int getWriteBytesLeft() {
+		if(reactor == null) { return Integer.MAX_VALUE; }
+		refillBudgets();
+		return writeBytesLeft;
+	}
+
+
+	/**
+	 * /!\ REACTOR OPERATED
+	 * 
+	 * @param nBytes
+	 */
+	void onBytesWritten(int nBytes) {
+		if(reactor != null) { writeBytesLeft -= nBytes; }
+	}
+
+
+	/**
+	 * Thread safe. Record activity from a direct write made by an application
+	 * thread, so that <code>IDLE</code> and <code>BUFFER_RELEASE</code>
+	 * deadlines are pushed back as for reactor I/O.
+	 */
+	void onOffReactorActivity() {
+		lastOffReactorActivity = RxTimingWheel.now();
+	}
+
+
+	/**
+	 * /!\ ENDPOINT OPERATED, for thread safety reasons
+	 * 
+	 * To be called by upper layers before processing one more frame (or any
+	 * other unit of work) of received data. Once the frame budget of the loop is
+	 * exhausted, the caller MUST stop processing, leave the data in its buffer,
+	 * and will be called back (<code>RxInbound.rx_onResumed()</code>) in the next
+	 * loop, without waiting for a new readiness.
+	 * 
+	 * @return true if one more frame can be processed in this loop
+	 */
+	public boolean acquireFrame() {
+		if(reactor == null) { return true; }
+		refillBudgets();
+		if(framesLeft > 0) {
+			framesLeft--;
+			return true;
 		}
 		else {
+			isInboundDeferred = true;
+			defer();
+			return false;
+		}
+	}
+
+
+	/**
+	 * /!\ ENDPOINT OPERATED, for thread safety reasons
+	 * 
+	 * @return true if received data is waiting for the next loop (upper layers
+	 *         SHOULD not pull more from below in the meantime)
+	 */
+	public boolean isInboundDeferred() {
+		return isInboundDeferred;
+	}
+
+
+	/**
+	 * /!\ REACTOR OPERATED
+	 * 
+	 * Work is left but budget is exhausted: resume in next loop.
+	 */
+	void defer() {
+		if(reactor != null && !isReadyQueued) {
+			isReadyQueued = true;
+			reactor.defer(this);
+		}
+	}
+
 
-			/*
-			 * No reason to observe anything else now
-			 */
-			key.interestOps(0);
+	/**
+	 * /!\ REACTOR OPERATED
+	 * 
+	 * Called back by the reactor in the loop following <code>defer()</code>.
+	 */
+	void onResumed() {
+		isReadyQueued = false;
+		if(state != State.CONNECTED || key == null || !key.isValid()) { return; }
 
-			/*
-			 * Initiate closing sequence
-			 */
-			state = State.CLOSING;
+		try {
+			reacquireBuffers();
+
+			if(isInboundDeferred) {
+				isInboundDeferred = false;
+				getInbound().rx_onResumed();
+			}
+			if(hasNeed(Need.RECEIVE)) { getInbound().read(); }
+			if(hasNeed(Need.SEND)) { getOutbound().write(); }
+		}
+		catch (IOException exception) {
+			if(rxIsLayerVerbose) {
+				System.out.println("[RxConnection]: resumed processing has encountered an error: "+exception.getMessage());
+			}
+			rx_initiateClosing();
 		}
 	}
 
 
+	/* </budgets> */
+
+
+
+	/* <connection-processing> */
+
+	/**
+	 * /!\ ENDPOINT OPERATED, for thread safety reasons
+	 * 
+	 * MUST only be called by the endpoint
+	 * Update interest set
+	 */
+	void updateInterestOps() {
+
+		/* already closed, nothing to observe anymore */
+		if(state == State.CLOSED) { return; }
+
+		/* 
+		 * Closing requested (or channel closed underneath): complete it right away,
+		 * since a key with no interest ops would never be selected again.
+		 */
+		if(state == State.CLOSING || !socketChannel.isOpen()) {
+			handleClosing();
+			return;
+		}
+
+		int ops = 0;
+		switch(state) {
+
+		case WAITING_FOR_CONNECTION_COMPLETION:
+
+			/* <update-observed> */
+			ops |= SelectionKey.OP_CONNECT;
+
+			break;
+
+		case CONNECTED :
+
+			if(hasNeed(Need.RECEIVE)) { ops |= SelectionKey.OP_READ; }
+
+			if(hasNeed(Need.SEND)) { ops |= SelectionKey.OP_WRITE; }
+
+			break;
+
+		case NOT_INITIATED:
+		case CLOSING :
+		case CLOSED : 
+			// no interest ops
+			break;
+		}
+
+		// if filter has been updated
+		if (ops != observerFilter) {
+
+			// update cache
+			observerFilter = ops;
+
+			// update key
+			key.interestOps(observerFilter);
+		}
+		/* </update-observed> */
+	}
+
+
 	/**
 	 * exploit ready set
 	 */
@@ -313,6 +976,12 @@ public abstract class RxConnection {
 
 				case CONNECTED :
 
+					/* picked up by idle deadline */
+					if(reactor != null) { lastActivity = reactor.now; }
+
+					/* released while idle */
+					reacquireBuffers();
+
 					// filter OP_READ
 					if (key.isReadable()) { getInbound().read(); }
 
@@ -353,25 +1022,59 @@ public abstract class RxConnection {
 	// public abstract void RX_onClosed();
 
 
-	private void handleClosing() {
-		// close underlying channel
+	/**
+	 * /!\ ENDPOINT OPERATED, for thread safety reasons
+	 */
+	void handleClosing() {
+
+		/* closing MUST happen only once */
+		if(state == State.CLOSED) { return; }
+
+		/* wait for a direct write in progress (if any) to complete */
+		RxOutbound outbound = getOutbound();
+		outbound.writeLock.lock();
 		try {
-			socketChannel.close();	
+			/* best effort to push what is left (e.g. TLS close_notify) */
+			outbound.flushRemaining();
+
+			// close underlying channel
+			try {
+				socketChannel.close();	
+			}
+			catch (IOException exception) {
+				exception.printStackTrace();
+			}
+
+			// Requests that the registration of this key's channel with its selector be cancelled.
+			if(key != null) { key.cancel(); }
+
+			state = State.CLOSED;
+
+			if(reactor != null) { reactor.timers.cancel(timer); }
+
+			/* nothing can be read or written anymore: give back buffers */
+			getInbound().rxReleaseBuffers();
+			outbound.releaseBuffers();
 		}
-		catch (IOException exception) {
-			exception.printStackTrace();
+		finally {
+			outbound.writeLock.unlock();
 		}
 
-		// Requests that the registration of this key's channel with its selector be cancelled.
-		key.cancel();
-		
-		state = State.CLOSED;
+		/* data still being received will never be complete */
+		getInbound().rx_onClosed();
+
+		/* producers waiting for writability will never get it */
+		getOutbound().onClosed();
+
+		if(reactor != null) { reactor.onClosed(this); }
 	}
 
 	
 	protected void rx_initiateClosing() {
 
 		state = State.CLOSING;
+
+		signal();
 	}
 
 
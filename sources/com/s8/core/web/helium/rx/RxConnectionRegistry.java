@@ -0,0 +1,229 @@
+package com.s8.core.web.helium.rx;
+
+import java.util.function.Consumer;
+
+
+/**
+ * <p>
+ * Registry of the live connections of a reactor, keyed by generational
+ * identifiers.
+ * </p>
+ * <p>
+ * An identifier packs a slot index (low <code>SLOT_BITS</code> bits) and the
+ * generation of that slot (high bits). Slots are freed on close and reused
+ * (LIFO), the generation being bumped on each release so that a stale
+ * identifier never resolves to the connection that re-used its slot.
+ * </p>
+ * <p>
+ * Live connections are also kept densely packed (swap-remove), so that adding,
+ * removing, looking up and iterating are all O(1) per connection, and memory
+ * stays flat however many connections have been accepted over time.
+ * </p>
+ * <p>
+ * /!\ NOT thread safe: REACTOR OPERATED only.
+ * </p>
+ *
+ * @author pierreconvert
+ *
+ */
+public class RxConnectionRegistry {
+
+
+	public final static int SLOT_BITS = 20;
+
+	public final static int MAX_CAPACITY = 1 << SLOT_BITS;
+
+	private final static int SLOT_MASK = MAX_CAPACITY - 1;
+
+	private final static int GENERATION_MASK = 0x7ff;
+
+	public final static int INITIAL_CAPACITY = 64;
+
+	public final static int NO_IDENTIFIER = -1;
+
+
+	/**
+	 * Maximum number of live connections
+	 */
+	public final int capacity;
+
+
+	/**
+	 * live connections, densely packed in [0, size[
+	 */
+	private RxConnection[] connections;
+
+
+	/**
+	 * slot -> index in <code>connections</code> (meaningless for free slots)
+	 */
+	private int[] positions;
+
+
+	/**
+	 * slot -> current generation
+	 */
+	private int[] generations;
+
+
+	/**
+	 * stack of free slots (below <code>nSlots</code>)
+	 */
+	private int[] freeSlots;
+
+	private int nFreeSlots = 0;
+
+
+	/**
+	 * number of slots ever used (high water mark)
+	 */
+	private int nSlots = 0;
+
+
+	private int size = 0;
+
+
+	/**
+	 *
+	 * @param capacity
+	 */
+	public RxConnectionRegistry(int capacity) {
+		super();
+		this.capacity = Math.max(1, Math.min(capacity, MAX_CAPACITY));
+		int length = Math.min(INITIAL_CAPACITY, this.capacity);
+		connections = new RxConnection[length];
+		positions = new int[length];
+		generations = new int[length];
+		freeSlots = new int[length];
+	}
+
+
+	/**
+	 *
+	 * @return the number of live connections
+	 */
+	public int size() {
+		return size;
+	}
+
+
+	public boolean isFull() {
+		return size >= capacity;
+	}
+
+
+	/**
+	 *
+	 * @param connection
+	 * @return the identifier of the connection, <code>NO_IDENTIFIER</code> if the
+	 *         registry is full
+	 */
+	public int add(RxConnection connection) {
+		if(size >= capacity) {
+			return NO_IDENTIFIER;
+		}
+
+		int slot;
+		if(nFreeSlots > 0) {
+			slot = freeSlots[--nFreeSlots];
+		}
+		else {
+			if(nSlots == positions.length) { extend(); }
+			slot = nSlots++;
+		}
+
+		if(size == connections.length) { extend(); }
+
+		connections[size] = connection;
+		positions[slot] = size;
+		size++;
+
+		int identifier = (generations[slot] << SLOT_BITS) | slot;
+		connection.identifier = identifier;
+		return identifier;
+	}
+
+
+	/**
+	 *
+	 * @param identifier
+	 * @return the live connection with this identifier, <code>null</code> if none
+	 *         (closed or stale identifier)
+	 */
+	public RxConnection get(int identifier) {
+		if(identifier < 0) { return null; }
+		int slot = identifier & SLOT_MASK;
+		if(slot >= nSlots || generations[slot] != (identifier >>> SLOT_BITS)) {
+			return null;
+		}
+		RxConnection connection = connections[positions[slot]];
+		return (connection != null && connection.identifier == identifier) ? connection : null;
+	}
+
+
+	/**
+	 *
+	 * @param connection
+	 * @return true if the connection was registered and has been removed
+	 */
+	public boolean remove(RxConnection connection) {
+		int identifier = connection.identifier;
+		if(get(identifier) != connection) {
+			return false;
+		}
+
+		int slot = identifier & SLOT_MASK;
+		int position = positions[slot];
+
+		/* swap-remove: move last connection into the hole */
+		int last = --size;
+		RxConnection moved = connections[last];
+		connections[position] = moved;
+		positions[moved.identifier & SLOT_MASK] = position;
+		connections[last] = null;
+
+		/* release slot, bump its generation */
+		generations[slot] = (generations[slot] + 1) & GENERATION_MASK;
+		freeSlots[nFreeSlots++] = slot;
+
+		connection.identifier = NO_IDENTIFIER;
+		return true;
+	}
+
+
+	/**
+	 * Iterate over live connections only. The consumer MUST NOT add or remove
+	 * connections.
+	 *
+	 * @param consumer
+	 */
+	public void forEach(Consumer<RxConnection> consumer) {
+		for(int i = 0; i < size; i++) {
+			consumer.accept(connections[i]);
+		}
+	}
+
+
+	/**
+	 * Grow arrays (bounded by capacity)
+	 */
+	private void extend() {
+		int length = Math.min(2 * connections.length, capacity);
+
+		RxConnection[] extendedConnections = new RxConnection[length];
+		System.arraycopy(connections, 0, extendedConnections, 0, connections.length);
+		connections = extendedConnections;
+
+		int[] extendedPositions = new int[length];
+		System.arraycopy(positions, 0, extendedPositions, 0, positions.length);
+		positions = extendedPositions;
+
+		int[] extendedGenerations = new int[length];
+		System.arraycopy(generations, 0, extendedGenerations, 0, generations.length);
+		generations = extendedGenerations;
+
+		int[] extendedFreeSlots = new int[length];
+		System.arraycopy(freeSlots, 0, extendedFreeSlots, 0, nFreeSlots);
+		freeSlots = extendedFreeSlots;
+	}
+}
@@ -73,6 +73,44 @@ public abstract class RxInbound {
 	private int nBytes;
 
 
+	/* <adaptive-sizing> */
+
+	/**
+	 * number of consecutive small reads before shrinking the network buffer
+	 */
+	public final static int SHRINK_THRESHOLD = 64;
+
+	/**
+	 * capacity the network buffer has been initialized with (never shrinks below,
+	 * and is reacquired with)
+	 */
+	private int initialCapacity;
+
+	/**
+	 * capacity up to which reads filling the buffer make it grow
+	 */
+	private final int maxCapacity;
+
+	/**
+	 * number of consecutive reads that used less than an eighth of the buffer
+	 */
+	private int nSmallReads = 0;
+
+	/* </adaptive-sizing> */
+
+
+	/**
+	 * Provides (and takes back) the buffers
+	 */
+	protected final RxBufferPool bufferPool;
+
+
+	/**
+	 * counters of the owning reactor (<code>null</code> if none)
+	 */
+	RxMetrics metrics;
+
+
 	/**
 	 * Settings
 	 */
@@ -87,6 +125,8 @@ public abstract class RxInbound {
 
 	
 		this.Rx_isVerbose = configuration.isRxVerbose;
+		this.bufferPool = configuration.getBufferPool();
+		this.maxCapacity = configuration.maxReceiveBufferCapacity;
 	}
 
 
@@ -108,15 +148,16 @@ public abstract class RxInbound {
 	 */
 	protected void rxIncreaseNetworkBufferCapacity(int sessionProposedCapacity) {
 
-		/* allocate new buffer */
-		ByteBuffer extendedBuffer = ByteBuffer.allocate(
+		/* borrow new buffer (from the upper size classes) */
+		ByteBuffer extendedBuffer = bufferPool.borrow(
 				sessionProposedCapacity > networkBuffer.capacity() ? sessionProposedCapacity : 
 					networkBuffer.capacity() * 2);
 
 		/* copy remaining content */
 		extendedBuffer.put(networkBuffer);
 
-		/* replace */
+		/* replace, and give back the former one */
+		bufferPool.release(networkBuffer);
 		networkBuffer = extendedBuffer;
 
 		/* network buffer is now in READ mode */
@@ -138,13 +179,65 @@ public abstract class RxInbound {
 	 * @param capacity
 	 */
 	public void rxInitializeNetworkBuffer(int capacity) {
+		initialCapacity = capacity;
+		nSmallReads = 0;
+
 		// set buffer so that first compact left it ready for writing
-		networkBuffer = ByteBuffer.allocate(capacity);
+		networkBuffer = bufferPool.borrow(capacity);
 		networkBuffer.position(0);
 		networkBuffer.limit(0);
 	}
 
 
+	/**
+	 * /!\ REACTOR OPERATED, for thread safety reasons
+	 * 
+	 * Give back the buffers to the pool once the connection is closed. Override to
+	 * release additional buffers (calling super).
+	 */
+	protected void rxReleaseBuffers() {
+		bufferPool.release(networkBuffer);
+		networkBuffer = null;
+	}
+
+
+	/**
+	 * /!\ REACTOR OPERATED, for thread safety reasons
+	 * 
+	 * Override to take into account additional buffers (calling super).
+	 * 
+	 * @return true if buffers hold nothing left to process, so that they can be
+	 *         released while the connection is idle
+	 */
+	protected boolean rxIsBufferIdle() {
+		return networkBuffer != null && !networkBuffer.hasRemaining();
+	}
+
+
+	/**
+	 * /!\ REACTOR OPERATED, for thread safety reasons
+	 * 
+	 * Borrow again the buffers released while the connection was idle, with their
+	 * initial capacities. Override to reacquire additional buffers (calling
+	 * super).
+	 */
+	protected void rxReacquireBuffers() {
+		if(networkBuffer == null) { rxInitializeNetworkBuffer(initialCapacity); }
+	}
+
+
+	/**
+	 * /!\ ENDPOINT OPERATED, for thread safety reasons
+	 * 
+	 * Called once, when the connection is closed (buffers already released).
+	 * Override to give back resources held by upper layers for data still being
+	 * received (as opposed to <code>rxReleaseBuffers</code>, which is also called
+	 * while the connection is idle).
+	 */
+	protected void rx_onClosed() {
+	}
+
+
 
 
 	/**
@@ -167,33 +260,59 @@ public abstract class RxInbound {
 	void read() throws IOException {
 
 		try {
-			if(getConnection().hasNeed(Need.RECEIVE)) {
+			RxConnection connection = getConnection();
+
+			/* 
+			 * read again as long as the socket fills the buffer (there is probably more), 
+			 * upper layers want more, and budget allows
+			 */
+			boolean isReading = connection.hasNeed(Need.RECEIVE);
+			while(isReading) {
 
 				/* buffer WRITE_MODE start of section */
-				// optimize inbound buffer free space
-				networkBuffer.compact();
+				// free space at the tail, moving leftover bytes only if worth it
+				int start = prepareTail();
+
+				int nRequested = networkBuffer.remaining();
 
 				// read
 				nBytes = socketChannel.read(networkBuffer);
 
+				if(metrics != null) { metrics.onRead(nBytes); }
+
 				if(nBytes==-1) {
 					rx_onRemotelyClosed();
 				}
 
-				// flip
-				networkBuffer.flip();
+				// back to READ mode, on unread bytes
+				restoreHead(start);
 				/* buffer WRITE_MODE end of section */
 
+				isReading = false;
+
 				// trigger callback function with buffer ready for reading
 				if(nBytes > 0) { 
 
+					connection.onBytesRead(nBytes);
+
+					adapt(nBytes, nRequested);
+
 					/* clear need, wait for upper layer ot decide if we need more recieve */
-					getConnection().clearNeed(Need.RECEIVE);
+					connection.clearNeed(Need.RECEIVE);
 
 					/* transmit to upper layer*/
 					rx_onReceived(); 
-				}
 
+					if(nBytes == nRequested && connection.hasNeed(Need.RECEIVE) && !connection.isInboundDeferred()) {
+						if(connection.getReadBytesLeft() > 0) {
+							isReading = true;
+						}
+						else {
+							/* more to read, but not in this loop */
+							connection.defer();
+						}
+					}
+				}
 			}
 		}
 		catch(IOException exception) {
@@ -213,6 +332,146 @@ public abstract class RxInbound {
 
 
 
+	/**
+	 * /!\ ENDPOINT OPERATED, for thread safety reasons
+	 * 
+	 * <p>
+	 * Switch network buffer to WRITE mode on its free tail, WITHOUT compacting
+	 * it on every read: unread bytes stay where they are, and new bytes are
+	 * appended right after them. Unread bytes are only moved back to the start
+	 * of the buffer once the space already consumed in front of them gets larger
+	 * than the free space behind them, so that a partial record (typically a
+	 * 16KB TLS record) is moved at most once per buffer revolution, instead of
+	 * on every read. The buffer stays contiguous: upper layers (HTTP/1 parser,
+	 * <code>SSLEngine.unwrap</code>) keep reading it as a single READ mode
+	 * buffer.
+	 * </p>
+	 * 
+	 * @return the position of the first unread byte, to be passed to
+	 *         <code>restoreHead</code>
+	 */
+	private int prepareTail() {
+		int start = networkBuffer.position(), end = networkBuffer.limit();
+
+		/* everything read: restart from scratch (nothing to move) */
+		if(start == end) {
+			start = 0;
+			end = 0;
+
+			/* reads have been small for a while: give back the extra capacity */
+			if(nSmallReads >= SHRINK_THRESHOLD && networkBuffer.capacity() > initialCapacity) {
+				bufferPool.release(networkBuffer);
+				networkBuffer = bufferPool.borrow(Math.max(initialCapacity, networkBuffer.capacity() / 2));
+				nSmallReads = 0;
+			}
+		}
+		/* more room ahead than behind: move unread bytes back to start */
+		else if(start > networkBuffer.capacity() - end) {
+			networkBuffer.compact();
+			end = networkBuffer.position();
+			start = 0;
+		}
+
+		networkBuffer.limit(networkBuffer.capacity());
+		networkBuffer.position(end);
+		return start;
+	}
+
+
+	/**
+	 * /!\ ENDPOINT OPERATED, for thread safety reasons
+	 * 
+	 * Follow recent read sizes: a read filling (at least half of) the buffer
+	 * makes it grow, up to <code>RxWebConfiguration.maxReceiveBufferCapacity</code>;
+	 * sustained small reads make it shrink back, down to its initial capacity
+	 * (see <code>prepareTail</code>).
+	 * 
+	 * @param nBytes bytes read (network buffer in READ mode)
+	 * @param nRequested room offered to the read
+	 */
+	private void adapt(int nBytes, int nRequested) {
+		int capacity = networkBuffer.capacity();
+		if(nBytes == nRequested && nRequested >= capacity / 2 && capacity < maxCapacity) {
+			nSmallReads = 0;
+			rxIncreaseNetworkBufferCapacity(Math.min(maxCapacity, 2 * capacity));
+		}
+		else if(nBytes < capacity / 8) {
+			nSmallReads++;
+		}
+		else {
+			nSmallReads = 0;
+		}
+	}
+
+
+	/**
+	 * /!\ ENDPOINT OPERATED, for thread safety reasons
+	 * 
+	 * Switch network buffer back to READ mode, on [start, position[.
+	 * 
+	 * @param start as returned by <code>prepareTail</code>
+	 */
+	private void restoreHead(int start) {
+		networkBuffer.limit(networkBuffer.position());
+		networkBuffer.position(start);
+	}
+
+
+	/**
+	 * /!\ ENDPOINT OPERATED, for thread safety reasons
+	 * 
+	 * Upper layers have deferred processing of received data (see
+	 * <code>RxConnection.acquireFrame()</code>): resume it. Default is to
+	 * deliver the network buffer again.
+	 * 
+	 * @throws IOException
+	 */
+	protected void rx_onResumed() throws IOException {
+		if(networkBuffer.hasRemaining()) { rx_onReceived(); }
+	}
+
+
+	/**
+	 * /!\ ENDPOINT OPERATED, for thread safety reasons
+	 * 
+	 * Blocking backend counterpart of <code>read()</code>: bytes have already been
+	 * read (by <code>RxVirtualDriver</code>) into <code>staging</code>. Move as
+	 * many as possible into the network buffer and trigger callback, exactly as
+	 * <code>read()</code> does.
+	 * 
+	 * @param staging (WRITE mode, left in WRITE mode with what could not be moved)
+	 * @return true if bytes have been delivered
+	 * @throws IOException 
+	 */
+	boolean deliver(ByteBuffer staging) throws IOException {
+
+		/* buffer WRITE_MODE start of section */
+		int start = prepareTail();
+
+		staging.flip();
+		int n = Math.min(staging.remaining(), networkBuffer.remaining());
+		int limit = staging.limit();
+		staging.limit(staging.position() + n);
+		networkBuffer.put(staging);
+		staging.limit(limit);
+		staging.compact();
+
+		restoreHead(start);
+		/* buffer WRITE_MODE end of section */
+
+		nBytes = n;
+		if(n > 0) {
+			/* clear need, wait for upper layer ot decide if we need more recieve */
+			getConnection().clearNeed(Need.RECEIVE);
+
+			/* transmit to upper layer*/
+			rx_onReceived();
+			return true;
+		}
+		return false;
+	}
+
+
 	public int getBytecount() {
 		return nBytes;
 	}
@@ -0,0 +1,323 @@
+package com.s8.core.web.helium.rx;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/**
+ * <p>
+ * Cumulative counters of one reactor: I/O (bytes, calls), selector loop
+ * (select time, ready keys, processing time histogram) and connections
+ * (accepted, closed).
+ * </p>
+ * <p>
+ * Each reactor owns its own instance and is the only writer, so recording is
+ * a plain increment published with opaque semantics: no lock, no CAS, no
+ * allocation. Direct writes made by application threads are the exception:
+ * they are counted apart (atomically) and merged in snapshots. Any thread
+ * can take a <code>Snapshot</code> at any time (values are individually
+ * consistent, not atomically as a whole). Snapshots of several reactors are
+ * summed up by <code>RxServer.getMetrics()</code>.
+ * </p>
+ *
+ * @author pierreconvert
+ *
+ */
+public class RxMetrics {
+
+
+	public final static int BYTES_READ = 0;
+
+	public final static int BYTES_WRITTEN = 1;
+
+	public final static int READ_CALLS = 2;
+
+	public final static int WRITE_CALLS = 3;
+
+	/**
+	 * reads returning no byte (spurious readiness)
+	 */
+	public final static int ZERO_BYTE_READS = 4;
+
+	public final static int LOOPS = 5;
+
+	/**
+	 * cumulative time blocked in <code>select</code> (ns)
+	 */
+	public final static int SELECT_TIME = 6;
+
+	public final static int KEYS_PROCESSED = 7;
+
+	public final static int ACCEPTED_CONNECTIONS = 8;
+
+	public final static int CLOSED_CONNECTIONS = 9;
+
+	/**
+	 * cumulative time spent processing (i.e. not selecting) in loops (ns)
+	 */
+	public final static int PROCESSING_TIME = 10;
+
+	public final static int NUMBER_OF_COUNTERS = 11;
+
+
+	/**
+	 * Loop processing times histogram: bucket <code>i</code> counts loops that
+	 * took [2^(i-1), 2^i[ ns (bucket 0: 0 ns).
+	 */
+	public final static int NUMBER_OF_BUCKETS = 48;
+
+
+	private final static VarHandle VALUES = MethodHandles.arrayElementVarHandle(long[].class);
+
+
+
+	/**
+	 * reactor name
+	 */
+	public final String name;
+
+
+	/**
+	 * counters, then histogram buckets
+	 */
+	private final long[] values = new long[NUMBER_OF_COUNTERS + NUMBER_OF_BUCKETS];
+
+
+	/**
+	 * bytes written by direct writes off the reactor thread
+	 */
+	private final AtomicLong offReactorBytesWritten = new AtomicLong();
+
+
+	/**
+	 * write calls made by direct writes off the reactor thread
+	 */
+	private final AtomicLong offReactorWriteCalls = new AtomicLong();
+
+
+	public RxMetrics(String name) {
+		super();
+		this.name = name;
+	}
+
+
+	/**
+	 * /!\ REACTOR OPERATED (single writer)
+	 *
+	 * @param index
+	 * @param value
+	 */
+	private void add(int index, long value) {
+		VALUES.setOpaque(values, index, (long) VALUES.getOpaque(values, index) + value);
+	}
+
+
+	/**
+	 * /!\ REACTOR OPERATED
+	 *
+	 * @param nBytes result of the read call
+	 */
+	void onRead(int nBytes) {
+		add(READ_CALLS, 1);
+		if(nBytes > 0) {
+			add(BYTES_READ, nBytes);
+		}
+		else if(nBytes == 0) {
+			add(ZERO_BYTE_READS, 1);
+		}
+	}
+
+
+	/**
+	 * /!\ REACTOR OPERATED
+	 *
+	 * @param nBytes result of the write call
+	 */
+	void onWritten(int nBytes) {
+		add(WRITE_CALLS, 1);
+		if(nBytes > 0) { add(BYTES_WRITTEN, nBytes); }
+	}
+
+
+	/**
+	 * Thread safe. Counterpart of <code>onWritten</code> for direct writes made
+	 * by application threads (see <code>RxOutbound.tryWriteDirect()</code>).
+	 *
+	 * @param nBytes result of the write call
+	 */
+	void onWrittenOffReactor(int nBytes) {
+		offReactorWriteCalls.incrementAndGet();
+		if(nBytes > 0) { offReactorBytesWritten.addAndGet(nBytes); }
+	}
+
+
+	/**
+	 * /!\ REACTOR OPERATED
+	 */
+	void onAccepted() {
+		add(ACCEPTED_CONNECTIONS, 1);
+	}
+
+
+	/**
+	 * /!\ REACTOR OPERATED
+	 */
+	void onClosed() {
+		add(CLOSED_CONNECTIONS, 1);
+	}
+
+
+	/**
+	 * /!\ REACTOR OPERATED
+	 *
+	 * @param selectTime time blocked in select (ns)
+	 * @param processingTime time spent processing (ns)
+	 * @param nKeys number of selected keys processed
+	 */
+	void onLoop(long selectTime, long processingTime, int nKeys) {
+		add(LOOPS, 1);
+		add(SELECT_TIME, selectTime);
+		add(PROCESSING_TIME, processingTime);
+		add(KEYS_PROCESSED, nKeys);
+		int bucket = Math.min(64 - Long.numberOfLeadingZeros(Math.max(0, processingTime)), NUMBER_OF_BUCKETS - 1);
+		add(NUMBER_OF_COUNTERS + bucket, 1);
+	}
+
+
+	/**
+	 * Thread safe
+	 *
+	 * @return a copy of current values
+	 */
+	public Snapshot snapshot() {
+		int n = values.length;
+		long[] copy = new long[n];
+		for(int i = 0; i < n; i++) { copy[i] = (long) VALUES.getOpaque(values, i); }
+		copy[BYTES_WRITTEN] += offReactorBytesWritten.get();
+		copy[WRITE_CALLS] += offReactorWriteCalls.get();
+		return new Snapshot(name, copy);
+	}
+
+
+
+	/**
+	 * Immutable copy of metrics
+	 */
+	public static class Snapshot {
+
+		public final String name;
+
+		private final long[] values;
+
+		private Snapshot(String name, long[] values) {
+			super();
+			this.name = name;
+			this.values = values;
+		}
+
+
+		/**
+		 *
+		 * @param name
+		 * @param snapshots
+		 * @return the sum of <code>snapshots</code>
+		 */
+		public static Snapshot sum(String name, Snapshot... snapshots) {
+			long[] values = new long[NUMBER_OF_COUNTERS + NUMBER_OF_BUCKETS];
+			for(Snapshot snapshot : snapshots) {
+				for(int i = 0; i < values.length; i++) { values[i] += snapshot.values[i]; }
+			}
+			return new Snapshot(name, values);
+		}
+
+
+		/**
+		 *
+		 * @param previous an earlier snapshot of the same metrics
+		 * @return what has been recorded since <code>previous</code>
+		 */
+		public Snapshot since(Snapshot previous) {
+			long[] delta = new long[values.length];
+			for(int i = 0; i < values.length; i++) { delta[i] = values[i] - previous.values[i]; }
+			return new Snapshot(name, delta);
+		}
+
+
+		/**
+		 *
+		 * @param index one of the counter constants of <code>RxMetrics</code>
+		 * @return the counter value
+		 */
+		public long get(int index) {
+			return values[index];
+		}
+
+		public long getBytesRead() { return values[BYTES_READ]; }
+
+		public long getBytesWritten() { return values[BYTES_WRITTEN]; }
+
+		public long getReadCalls() { return values[READ_CALLS]; }
+
+		public long getWriteCalls() { return values[WRITE_CALLS]; }
+
+		public long getZeroByteReads() { return values[ZERO_BYTE_READS]; }
+
+		public long getLoops() { return values[LOOPS]; }
+
+		public long getSelectTime() { return values[SELECT_TIME]; }
+
+		public long getKeysProcessed() { return values[KEYS_PROCESSED]; }
+
+		public long getAcceptedConnections() { return values[ACCEPTED_CONNECTIONS]; }
+
+		public long getClosedConnections() { return values[CLOSED_CONNECTIONS]; }
+
+		public long getProcessingTime() { return values[PROCESSING_TIME]; }
+
+
+		/**
+		 *
+		 * @return loop processing time histogram (see
+		 *         <code>RxMetrics.NUMBER_OF_BUCKETS</code>)
+		 */
+		public long[] getProcessingTimeHistogram() {
+			long[] histogram = new long[NUMBER_OF_BUCKETS];
+			System.arraycopy(values, NUMBER_OF_COUNTERS, histogram, 0, NUMBER_OF_BUCKETS);
+			return histogram;
+		}
+
+
+		/**
+		 *
+		 * @param quantile in [0, 1]
+		 * @return upper bound (ns) of the histogram bucket holding this quantile of
+		 *         loop processing times
+		 */
+		public long getProcessingTimeQuantile(double quantile) {
+			long nLoops = 0;
+			for(int i = 0; i < NUMBER_OF_BUCKETS; i++) { nLoops += values[NUMBER_OF_COUNTERS + i]; }
+			long threshold = (long) Math.ceil(quantile * nLoops), n = 0;
+			for(int i = 0; i < NUMBER_OF_BUCKETS; i++) {
+				n += values[NUMBER_OF_COUNTERS + i];
+				if(n >= threshold && n > 0) { return i == 0 ? 0 : (1L << i) - 1; }
+			}
+			return 0;
+		}
+
+
+		@Override
+		public String toString() {
+			long nLoops = Math.max(1, getLoops());
+			return "[RxMetrics] "+name
+					+" read: "+getBytesRead()+" B in "+getReadCalls()+" calls ("+getZeroByteReads()+" empty)"
+					+", written: "+getBytesWritten()+" B in "+getWriteCalls()+" calls"
+					+", loops: "+getLoops()
+					+" (select: "+getSelectTime()/nLoops/1000+" us/loop"
+					+", processing: "+getProcessingTime()/nLoops/1000+" us/loop"
+					+", p99 < "+getProcessingTimeQuantile(0.99)/1000+" us"
+					+", keys: "+getKeysProcessed()+")"
+					+", connections: +"+getAcceptedConnections()+" -"+getClosedConnections();
+		}
+	}
+}
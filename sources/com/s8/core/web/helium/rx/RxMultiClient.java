@@ -0,0 +1,279 @@
+package com.s8.core.web.helium.rx;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+/**
+ * <p>
+ * Client managing many outbound connections (to one or several targets) on
+ * shared reactors, instead of one thread and one selector per connection as
+ * <code>RxClient</code>.
+ * </p>
+ * <p>
+ * Connecting is non-blocking (<code>OP_CONNECT</code>), bounded by
+ * <code>RxWebConfiguration.connectTimeout</code> (see
+ * <code>RxTimeout.CONNECT</code>), and limited to
+ * <code>RxWebConfiguration.maxConnectionsPerTarget</code> simultaneous
+ * connections per target. Once registered, connections are driven by the
+ * reactor exactly as accepted ones (<code>RxConnection.processReadyOps()</code>).
+ * </p>
+ * <p>
+ * Reactors are either owned by the client (<code>startRxLayer()</code>) or
+ * borrowed from a server (<code>startRxLayer(server.getReactors())</code>), in
+ * which case outbound connections count towards the server pool capacity.
+ * </p>
+ *
+ * @author pierreconvert
+ *
+ */
+public abstract class RxMultiClient implements RxEndpoint {
+
+
+	/**
+	 * Connections count of a target
+	 */
+	private static class Target {
+
+		final InetSocketAddress address;
+
+		final AtomicInteger nConnections = new AtomicInteger(0);
+
+		public Target(InetSocketAddress address) {
+			super();
+			this.address = address;
+		}
+
+		boolean tryAcquire(int max) {
+			int n;
+			do {
+				n = nConnections.get();
+				if(n >= max) { return false; }
+			}
+			while(!nConnections.compareAndSet(n, n + 1));
+			return true;
+		}
+
+		void release() {
+			nConnections.decrementAndGet();
+		}
+	}
+
+
+	private RxReactor[] reactors;
+
+	private RxBalancing balancing;
+
+	private int maxConnectionsPerTarget;
+
+	private final ConcurrentHashMap<InetSocketAddress, Target> targets = new ConcurrentHashMap<>();
+
+	private final AtomicInteger sequence = new AtomicInteger(0);
+
+	public boolean rxIsVerbose;
+
+
+	public RxMultiClient() {
+		super();
+	}
+
+
+	@Override
+	public abstract RxWebConfiguration getWebConfiguration();
+
+
+	/**
+	 * /!\ REACTOR OPERATED
+	 *
+	 * Create (and initialize) the connection of a channel. The channel might not
+	 * be connected yet.
+	 *
+	 * @param selectionKey
+	 * @param socketChannel
+	 * @return
+	 * @throws IOException
+	 */
+	public abstract RxConnection createConnection(SelectionKey selectionKey, SocketChannel socketChannel) throws IOException;
+
+
+	/**
+	 * /!\ REACTOR OPERATED
+	 *
+	 * Connection could not even be initiated (unresolved host, no route...).
+	 * Failures happening once initiated (refused, timed out) close the connection.
+	 *
+	 * @param address
+	 * @param exception
+	 */
+	protected void onConnectFailed(InetSocketAddress address, IOException exception) {
+		if(rxIsVerbose) {
+			System.out.println("[RxMultiClient] failed to connect to "+address+": "+exception.getMessage());
+		}
+	}
+
+
+	@Override
+	public void start() throws Exception {
+		startRxLayer();
+	}
+
+
+	/**
+	 * Start client on its own reactors (<code>RxWebConfiguration.reactors</code>)
+	 *
+	 * @throws IOException
+	 */
+	public void startRxLayer() throws IOException {
+		RxWebConfiguration configuration = getWebConfiguration();
+		int nReactors = Math.max(1, configuration.reactors);
+		RxReactor[] reactors = new RxReactor[nReactors];
+		int reactorCapacity = (Math.max(1, configuration.poolCapacity) + nReactors - 1) / nReactors;
+		for(int i = 0; i < nReactors; i++) {
+			reactors[i] = new RxReactor("client-"+i, reactorCapacity, configuration);
+		}
+		startRxLayer(reactors);
+		for(RxReactor reactor : reactors) {
+			reactor.start(getSiliconEngine());
+		}
+	}
+
+
+	/**
+	 * Start client on already running reactors (typically: the ones of a server)
+	 *
+	 * @param reactors
+	 */
+	public void startRxLayer(RxReactor... reactors) {
+		RxWebConfiguration configuration = getWebConfiguration();
+		this.reactors = reactors;
+		this.balancing = configuration.balancing;
+		this.maxConnectionsPerTarget = Math.max(1, configuration.maxConnectionsPerTarget);
+		this.rxIsVerbose = configuration.isRxVerbose;
+	}
+
+
+	/**
+	 *
+	 * @return the reactors driving the connections of this client
+	 */
+	public RxReactor[] getReactors() {
+		return reactors;
+	}
+
+
+	/**
+	 * Thread safe
+	 *
+	 * @param address
+	 * @return the number of live (or connecting) connections to this target
+	 */
+	public int getConnectionCount(InetSocketAddress address) {
+		Target target = targets.get(address);
+		return target != null ? target.nConnections.get() : 0;
+	}
+
+
+	/**
+	 * Thread safe. Open a new connection to <code>hostname:port</code>.
+	 *
+	 * @param hostname
+	 * @param port
+	 * @return false if the per-target limit or the pool capacity has been reached
+	 */
+	public boolean connect(String hostname, int port) {
+		return connect(new InetSocketAddress(hostname, port));
+	}
+
+
+	/**
+	 * Thread safe. Open a new connection to <code>address</code>. The channel is
+	 * opened and registered by the owning reactor, which calls
+	 * <code>createConnection</code>.
+	 *
+	 * @param address
+	 * @return false if the per-target limit or the pool capacity has been reached
+	 */
+	public boolean connect(InetSocketAddress address) {
+		Target target = targets.computeIfAbsent(address, Target::new);
+		if(!target.tryAcquire(maxConnectionsPerTarget)) { return false; }
+
+		RxReactor reactor = admit(balancing.select(reactors, sequence.getAndIncrement()));
+		if(reactor == null) {
+			target.release();
+			return false;
+		}
+
+		reactor.post(() -> open(reactor, target));
+		return true;
+	}
+
+
+	/**
+	 * /!\ REACTOR OPERATED
+	 *
+	 * @param reactor
+	 * @param target
+	 */
+	private void open(RxReactor reactor, Target target) {
+		SocketChannel socketChannel = null;
+		try {
+			socketChannel = SocketChannel.open();
+			socketChannel.configureBlocking(false);
+			boolean isEstablished = socketChannel.connect(target.address);
+
+			// no selection so far, but build key
+			SelectionKey selectionKey = socketChannel.register(reactor.selector, 0);
+
+			RxConnection connection = createConnection(selectionKey, socketChannel);
+			connection.onReleased = target::release;
+
+			if(!isEstablished) { connection.connect(); }
+
+			reactor.adopt(selectionKey, connection);
+
+			if(!isEstablished) { connection.armTimeout(RxTimeout.CONNECT); }
+		}
+		catch (IOException exception) {
+			reactor.release();
+			target.release();
+			if(socketChannel != null) {
+				try {
+					socketChannel.close();
+				}
+				catch (IOException e) {
+					e.printStackTrace();
+				}
+			}
+			onConnectFailed(target.address, exception);
+		}
+	}
+
+
+	/**
+	 *
+	 * @param preferred
+	 * @return the reactor that has admitted the connection, <code>null</code> if all are full
+	 */
+	private RxReactor admit(RxReactor preferred) {
+		if(preferred.tryAdmit()) { return preferred; }
+		for(RxReactor reactor : reactors) {
+			if(reactor != preferred && reactor.tryAdmit()) { return reactor; }
+		}
+		return null;
+	}
+
+
+	@Override
+	public void stop() throws Exception {
+	}
+
+
+	@Override
+	public void keySelectorWakeup() {
+		for(RxReactor reactor : reactors) { reactor.wakeup(); }
+	}
+}
@@ -2,7 +2,15 @@ package com.s8.core.web.helium.rx;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
 import java.nio.channels.SocketChannel;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
 
 import javax.net.ssl.SSLSession;
 
@@ -17,6 +25,13 @@ import javax.net.ssl.SSLSession;
  * <p>
  * Note that is the responsability of the application to flip/clear/compact buffer
  * </p>
+ * <p>
+ * Upper layers queuing data for sending account for it with
+ * <code>onQueued</code> / <code>onDequeued</code>. Past the high watermark the
+ * outbound becomes unwritable, until the queue drains back to the low
+ * watermark: producers check <code>isWritable()</code>, listen to changes
+ * (<code>setWritabilityListener</code>) or await <code>whenWritable()</code>.
+ * </p>
  * @author pc
  *
  */
@@ -44,9 +59,100 @@ public abstract class RxOutbound {
 	private int nBytesWritten;
 
 
+	/**
+	 * /!\ write ownership required
+	 * 
+	 * Bytes at the start of the network buffer that have already been written,
+	 * but not compacted away yet (see <code>writeNetworkBuffer()</code>)
+	 */
+	private int flushedOffset = 0;
+
+
+	/**
+	 * capacity the network buffer has been initialized with (and is reacquired
+	 * with)
+	 */
+	private int initialCapacity;
+
+
 	private final boolean rx_isVerbose;
 
 
+	/**
+	 * Provides (and takes back) the buffers
+	 */
+	protected final RxBufferPool bufferPool;
+
+
+	/**
+	 * counters of the owning reactor (<code>null</code> if none)
+	 */
+	RxMetrics metrics;
+
+
+	/**
+	 * Write ownership: held by whoever (reactor or direct writer) is filling and
+	 * writing the network buffer
+	 */
+	final ReentrantLock writeLock = new ReentrantLock();
+
+
+	/**
+	 * see <code>RxWebConfiguration.isDirectWrite</code>
+	 */
+	private final boolean isDirectWrite;
+
+
+	/**
+	 * maximum number of bytes written by a direct write
+	 */
+	private final int directWriteBudget;
+
+
+	/* <writability> */
+
+	/**
+	 * bytes queued by the upper layer, not handed to the network buffer yet
+	 */
+	private final AtomicLong queuedBytes = new AtomicLong(0);
+
+	private final long highWatermark;
+
+	private final long lowWatermark;
+
+	private volatile boolean isWritable = true;
+
+	/**
+	 * guards writability transitions (and keeps notifications ordered)
+	 */
+	private final Object writabilityLock = new Object();
+
+	/**
+	 * completed once writable again, <code>null</code> if nobody is waiting
+	 */
+	private CompletableFuture<Void> writable;
+
+	/**
+	 * set once the connection is closed (under <code>writabilityLock</code>)
+	 */
+	private volatile boolean isWritabilityClosed;
+
+	private volatile RxWritabilityListener writabilityListener;
+
+	/**
+	 * crossings not notified yet, in order (queued under
+	 * <code>writabilityLock</code>, notified outside of it)
+	 */
+	private final Queue<Boolean> writabilityChanges = new ConcurrentLinkedQueue<>();
+
+	/**
+	 * set while a thread is notifying crossings to the listener
+	 */
+	private final AtomicBoolean isNotifyingWritability = new AtomicBoolean(false);
+
+	/* </writability> */
+
+
 	public RxOutbound(String name, RxWebConfiguration configuration) {
 		super();
 
@@ -55,6 +161,13 @@ public abstract class RxOutbound {
 
 
 		this.rx_isVerbose = configuration.isRxVerbose;
+		this.bufferPool = configuration.getBufferPool();
+
+		this.isDirectWrite = configuration.isDirectWrite;
+		this.directWriteBudget = configuration.writeBudget > 0 ? configuration.writeBudget : Integer.MAX_VALUE;
+
+		this.highWatermark = configuration.outboundHighWatermark > 0 ? configuration.outboundHighWatermark : Long.MAX_VALUE;
+		this.lowWatermark = Math.min(configuration.outboundLowWatermark, highWatermark);
 	}
 
 	public abstract RxConnection getConnection();
@@ -71,7 +184,46 @@ public abstract class RxOutbound {
 
 
 	public void initializeNetworkBuffer(int capacity) {
-		networkBuffer = ByteBuffer.allocate(capacity);
+		initialCapacity = capacity;
+		networkBuffer = bufferPool.borrow(capacity);
+		flushedOffset = 0;
+	}
+
+
+	/**
+	 * /!\ REACTOR OPERATED, for thread safety reasons
+	 * 
+	 * Give back the buffers to the pool once the connection is closed. Override to
+	 * release additional buffers (calling super).
+	 */
+	protected void releaseBuffers() {
+		bufferPool.release(networkBuffer);
+		networkBuffer = null;
+	}
+
+
+	/**
+	 * /!\ REACTOR OPERATED, for thread safety reasons (with write ownership)
+	 * 
+	 * Override to take into account additional buffers (calling super).
+	 * 
+	 * @return true if buffers hold nothing left to send, so that they can be
+	 *         released while the connection is idle
+	 */
+	protected boolean isBufferIdle() {
+		return networkBuffer != null && networkBuffer.position() == 0;
+	}
+
+
+	/**
+	 * /!\ REACTOR OPERATED, for thread safety reasons
+	 * 
+	 * Borrow again the buffers released while the connection was idle, with their
+	 * initial capacities. Override to reacquire additional buffers (calling
+	 * super).
+	 */
+	protected void reacquireBuffers() {
+		if(networkBuffer == null) { initializeNetworkBuffer(initialCapacity); }
 	}
 
 	/**
@@ -87,16 +239,19 @@ public abstract class RxOutbound {
 
 		if(sessionProposedCapacity > networkBuffer.capacity()) {
 
-			/* allocate new buffer */
-			ByteBuffer extendedBuffer = ByteBuffer.allocate(sessionProposedCapacity);
+			/* borrow new buffer (from the upper size classes) */
+			ByteBuffer extendedBuffer = bufferPool.borrow(sessionProposedCapacity);
 
-			/* put networkBuffer in READ mode */
+			/* put networkBuffer in READ mode (on bytes not written yet) */
 			networkBuffer.flip();
+			networkBuffer.position(flushedOffset);
+			flushedOffset = 0;
 
 			/* copy remaining content */
 			extendedBuffer.put(networkBuffer);
 
-			/* replace (networkBuffer is in WRITE mode) */
+			/* replace (networkBuffer is in WRITE mode), and give back the former one */
+			bufferPool.release(networkBuffer);
 			networkBuffer = extendedBuffer;	
 		}		
 	}
@@ -166,42 +321,58 @@ public abstract class RxOutbound {
 	 */
 	void write() {
 
+		/* a direct write is in progress: it will hand over (with Need.SEND) if partial */
+		if(!writeLock.tryLock()) { return; }
+
 		try {
-			if(getConnection().hasNeed(Need.SEND)) {
+			RxConnection connection = getConnection();
+
+			/* 
+			 * write again as long as the socket takes everything, there is more to send, 
+			 * and budget allows
+			 */
+			boolean isWriting = connection.hasNeed(Need.SEND);
+			while(isWriting) {
 
 				// write as much as possible (I/O operation is always expensive)
 				rx_onPreSending();
 
-				/* buffer READ_MODE start of section */
-				// flip to prepare passing on socket channel
-				networkBuffer.flip();
-
+				int nRequested = networkBuffer.position() - flushedOffset;
 
 				// write operation
-				nBytesWritten = socketChannel.write(networkBuffer);
+				nBytesWritten = writeNetworkBuffer();
 
-				/* 
-				 * Everything might not have been written, 
-				 * so compact (and switch to direct write mode) */
-				networkBuffer.compact();
-				/* buffer READ_MODE end of section */
+				if(metrics != null) { metrics.onWritten(nBytesWritten); }
+
+				if(nBytesWritten > 0) { connection.onBytesWritten(nBytesWritten); }
 
 				rx_onPostSending(nBytesWritten);
 
+				isWriting = false;
 
 				/* network buffer MUST be cleared to declare that we don't need anymore SEND */
 				if(networkBuffer.position() == 0) {
 					//
-					getConnection().clearNeed(Need.SEND);
+					connection.clearNeed(Need.SEND);
 				}
 				/* remote closing */
 				else if(nBytesWritten==-1) {
 
 					// reset flag
-					getConnection().addNeed(Need.SHUT_DOWN);
+					connection.addNeed(Need.SHUT_DOWN);
 
 					rx_onRemotelyClosed();
 				}
+				/* socket took everything, and upper layer has refilled */
+				else if(nBytesWritten == nRequested && connection.hasNeed(Need.SEND)) {
+					if(connection.getWriteBytesLeft() > 0) {
+						isWriting = true;
+					}
+					else {
+						/* more to write, but not in this loop */
+						connection.defer();
+					}
+				}
 			}
 		} 
 		catch (IOException exception) {
@@ -218,9 +389,405 @@ public abstract class RxOutbound {
 
 			rx_onFailed(exception);
 		}
+		finally {
+			writeLock.unlock();
+		}
+	}
 
+
+	/**
+	 * /!\ write ownership required
+	 * 
+	 * <p>
+	 * Write the pending bytes of the network buffer, i.e. [flushedOffset,
+	 * position[, leaving it in WRITE mode. Unlike a plain flip/write/compact,
+	 * a partial write does not move the unsent bytes back to the start of the
+	 * buffer: the written prefix is only recorded (<code>flushedOffset</code>),
+	 * and compacted away once it gets larger than the free space left behind
+	 * pending bytes (or for free, once everything has been written). Upper
+	 * layers still see a plain WRITE mode buffer, with something to send if
+	 * and only if <code>position() &gt; 0</code>.
+	 * </p>
+	 * 
+	 * @return the number of bytes written
+	 * @throws IOException
+	 */
+	private int writeNetworkBuffer() throws IOException {
+		int end = networkBuffer.position();
+
+		/* buffer READ_MODE start of section */
+		networkBuffer.limit(end);
+		networkBuffer.position(flushedOffset);
+
+		int nBytes = socketChannel.write(networkBuffer);
+
+		flushedOffset = networkBuffer.position();
+		networkBuffer.limit(networkBuffer.capacity());
+		networkBuffer.position(end);
+		/* buffer READ_MODE end of section */
+
+		/* everything written: restart from scratch (nothing to move) */
+		if(flushedOffset == end) {
+			networkBuffer.clear();
+			flushedOffset = 0;
+		}
+		/* more room ahead than behind: move pending bytes back to start */
+		else if(flushedOffset > networkBuffer.remaining()) {
+			reclaim();
+		}
+		return nBytes;
 	}
 
+
+	/**
+	 * /!\ write ownership required
+	 */
+	private void reclaim() {
+		networkBuffer.flip();
+		networkBuffer.position(flushedOffset);
+		networkBuffer.compact();
+		flushedOffset = 0;
+	}
+
+
+	/**
+	 * /!\ ENDPOINT OPERATED, for thread safety reasons
+	 * 
+	 * For upper layers running out of room in the network buffer (e.g. on
+	 * <code>BUFFER_OVERFLOW</code>): move pending bytes back to the start of the
+	 * buffer, to give back the space of bytes already written. No-op if another
+	 * thread currently owns the write.
+	 * 
+	 * @return true if some room has been recovered
+	 */
+	protected boolean reclaimNetworkBuffer() {
+		if(!writeLock.tryLock()) { return false; }
+		try {
+			if(networkBuffer == null || flushedOffset == 0) { return false; }
+			reclaim();
+			return true;
+		}
+		finally {
+			writeLock.unlock();
+		}
+	}
+
+
+	/**
+	 * Thread safe (reentrant). Take write ownership: upper layers filling the
+	 * network buffer outside of <code>rx_onPreSending</code> (e.g. triggered by
+	 * inbound traffic, or from another thread) MUST hold it, since a direct write
+	 * may be running concurrently on an application thread.
+	 */
+	protected void acquireWriteOwnership() {
+		writeLock.lock();
+	}
+
+
+	/**
+	 * Give back the write ownership taken with <code>acquireWriteOwnership()</code>
+	 */
+	protected void releaseWriteOwnership() {
+		writeLock.unlock();
+	}
+
+
+	/**
+	 * Hook for upper layers: may a direct write be attempted now? (e.g. not while
+	 * handshaking)
+	 * 
+	 * @return true by default
+	 */
+	protected boolean rx_isDirectWritable() {
+		return true;
+	}
+
+
+	/**
+	 * Thread safe. Opt-in fast path of <code>send()</code>: if the outbound is
+	 * idle (no send pending, no write in progress), the calling thread takes
+	 * write ownership and writes straight to the channel. If the write is
+	 * partial, <code>Need.SEND</code> is raised so that the reactor takes over
+	 * on <code>OP_WRITE</code>.
+	 * 
+	 * @return true if the send request has been handled, false if it must go
+	 *         through the reactor
+	 */
+	boolean tryWriteDirect() {
+		RxConnection connection = getConnection();
+		if(!isDirectWrite || connection.reactor == null || connection.state != RxConnection.State.CONNECTED 
+				|| connection.hasNeed(Need.SEND) || writeLock.isHeldByCurrentThread()) {
+			return false;
+		}
+
+		if(!writeLock.tryLock()) { return false; }
+
+		try {
+			/* re-check under ownership */
+			if(connection.state != RxConnection.State.CONNECTED || networkBuffer == null 
+					|| connection.hasNeed(Need.SEND) || !rx_isDirectWritable()) {
+				return false;
+			}
+
+			boolean isReactorThread = connection.reactor.isReactorThread();
+			int nBytes = 0;
+			boolean isWriting = true;
+			while(isWriting) {
+				rx_onPreSending();
+
+				int nRequested = networkBuffer.position() - flushedOffset;
+				nBytesWritten = writeNetworkBuffer();
+
+				if(isReactorThread) {
+					if(metrics != null) { metrics.onWritten(nBytesWritten); }
+				}
+				else {
+					/* off the reactor: counted apart, activity folded in by the reactor */
+					if(metrics != null) { metrics.onWrittenOffReactor(nBytesWritten); }
+					if(nBytesWritten > 0) { connection.onOffReactorActivity(); }
+				}
+
+				rx_onPostSending(nBytesWritten);
+				nBytes += nBytesWritten;
+
+				/* go on only if the socket took everything and there is more */
+				isWriting = nBytesWritten == nRequested && networkBuffer.position() > 0 && nBytes < directWriteBudget;
+			}
+
+			/* partial (or over budget): hand over to the reactor */
+			if(networkBuffer.position() > 0) { connection.addNeed(Need.SEND); }
+			return true;
+		}
+		catch (IOException exception) {
+			if(rx_isVerbose) {
+				System.out.println("[RxOutbound] direct write encounters an exception: "+exception.getMessage());
+			}
+			rx_onFailed(exception);
+			return true;
+		}
+		finally {
+			writeLock.unlock();
+		}
+	}
+
+	/**
+	 * /!\ ENDPOINT OPERATED, for thread safety reasons
+	 * 
+	 * Blocking backend counterpart of <code>write()</code>, first half: let the
+	 * upper layer fill the network buffer, then move its content to
+	 * <code>staging</code> (to be written by <code>RxVirtualDriver</code>,
+	 * outside callbacks).
+	 * 
+	 * @param staging (cleared, WRITE mode)
+	 * @return the number of bytes staged
+	 * @throws IOException
+	 */
+	int stage(ByteBuffer staging) throws IOException {
+
+		rx_onPreSending();
+
+		/* buffer READ_MODE start of section */
+		networkBuffer.flip();
+		networkBuffer.position(flushedOffset);
+
+		int n = Math.min(networkBuffer.remaining(), staging.remaining());
+		int limit = networkBuffer.limit();
+		networkBuffer.limit(networkBuffer.position() + n);
+		staging.put(networkBuffer);
+		networkBuffer.limit(limit);
+
+		networkBuffer.compact();
+		flushedOffset = 0;
+		/* buffer READ_MODE end of section */
+
+		return n;
+	}
+
+
+	/**
+	 * /!\ ENDPOINT OPERATED, for thread safety reasons
+	 * 
+	 * Blocking backend counterpart of <code>write()</code>, second half: staged
+	 * bytes have all been written.
+	 * 
+	 * @param nBytesWritten
+	 * @throws IOException
+	 */
+	void onStagedWritten(int nBytesWritten) throws IOException {
+		this.nBytesWritten = nBytesWritten;
+
+		rx_onPostSending(nBytesWritten);
+
+		/* network buffer MUST be cleared to declare that we don't need anymore SEND */
+		if(networkBuffer.position() == 0) {
+			getConnection().clearNeed(Need.SEND);
+		}
+	}
+
+
+	/**
+	 * /!\ ENDPOINT OPERATED, for thread safety reasons
+	 * 
+	 * Single non-blocking attempt to write the bytes left in the network buffer, 
+	 * right before the channel gets closed.
+	 */
+	void flushRemaining() {
+		if(networkBuffer != null && networkBuffer.position() > 0 && socketChannel.isOpen()) {
+			try {
+				writeNetworkBuffer();
+			}
+			catch (IOException exception) {
+				if(rx_isVerbose) {
+					System.out.println("[RxOutbound] flush on closing failed: "+exception.getMessage());
+				}
+			}
+		}
+	}
+
+
+	/* <writability> */
+
+
+	/**
+	 * Thread safe. To be called by upper layers when queuing data for sending.
+	 * 
+	 * @param nBytes
+	 */
+	protected void onQueued(long nBytes) {
+		if(queuedBytes.addAndGet(nBytes) > highWatermark && isWritable) { updateWritability(); }
+	}
+
+
+	/**
+	 * /!\ ENDPOINT OPERATED, for thread safety reasons
+	 * 
+	 * To be called by upper layers once queued data has been handed to the
+	 * network buffer (or dropped).
+	 * 
+	 * @param nBytes
+	 */
+	protected void onDequeued(long nBytes) {
+		if(queuedBytes.addAndGet(-nBytes) <= lowWatermark && !isWritable) { updateWritability(); }
+	}
+
+
+	private void updateWritability() {
+		CompletableFuture<Void> completed = null;
+		synchronized (writabilityLock) {
+			long n = queuedBytes.get();
+			if(isWritable && n > highWatermark) {
+				isWritable = false;
+			}
+			else if(!isWritable && n <= lowWatermark) {
+				isWritable = true;
+				completed = writable;
+				writable = null;
+			}
+			else {
+				/* crossing already handled by another thread */
+				return;
+			}
+
+			if(rx_isVerbose) {
+				System.out.println("[RxOutbound] "+name+" is now "+(isWritable ? "writable" : "unwritable")+" ("+n+" bytes queued)");
+			}
+
+			writabilityChanges.add(isWritable);
+		}
+
+		/* user code (continuations, listener) never runs under the lock */
+		if(completed != null) { completed.complete(null); }
+		notifyWritabilityChanges();
+	}
+
+
+	/**
+	 * Thread safe. Notify queued crossings in order: a single thread at a time
+	 * drains the queue, others leave their crossing to it.
+	 */
+	private void notifyWritabilityChanges() {
+		while(!writabilityChanges.isEmpty() && isNotifyingWritability.compareAndSet(false, true)) {
+			try {
+				Boolean isWritable;
+				while((isWritable = writabilityChanges.poll()) != null) {
+					RxWritabilityListener listener = writabilityListener;
+					if(listener != null) { listener.onWritabilityChanged(isWritable); }
+				}
+			}
+			finally {
+				isNotifyingWritability.set(false);
+			}
+		}
+	}
+
+
+	/**
+	 * /!\ ENDPOINT OPERATED, for thread safety reasons
+	 * 
+	 * Connection is closed: release waiting producers.
+	 */
+	void onClosed() {
+		CompletableFuture<Void> failed;
+		synchronized (writabilityLock) {
+			isWritabilityClosed = true;
+			failed = writable;
+			writable = null;
+		}
+		if(failed != null) { failed.completeExceptionally(new ClosedChannelException()); }
+	}
+
+
+	/**
+	 * Thread safe
+	 * 
+	 * @return false if the high watermark has been crossed and the queue has not
+	 *         drained back to the low watermark yet
+	 */
+	public boolean isWritable() {
+		return isWritable;
+	}
+
+
+	/**
+	 * Thread safe
+	 * 
+	 * @return the number of bytes queued, not yet handed to the network buffer
+	 */
+	public long getQueuedBytes() {
+		return queuedBytes.get();
+	}
+
+
+	/**
+	 * Thread safe. Completion happens on the endpoint thread: dependent actions
+	 * SHOULD be asynchronous.
+	 * 
+	 * @return a stage completed once writable (right away if already), or
+	 *         exceptionally if the connection is (or gets) closed
+	 */
+	public CompletionStage<Void> whenWritable() {
+		if(isWritable && !isWritabilityClosed) { return CompletableFuture.completedStage(null); }
+		synchronized (writabilityLock) {
+			if(isWritabilityClosed) { return CompletableFuture.failedStage(new ClosedChannelException()); }
+			if(isWritable) { return CompletableFuture.completedStage(null); }
+			if(writable == null) { writable = new CompletableFuture<>(); }
+			return writable.minimalCompletionStage();
+		}
+	}
+
+
+	/**
+	 * 
+	 * @param listener (<code>null</code> to remove)
+	 */
+	public void setWritabilityListener(RxWritabilityListener listener) {
+		this.writabilityListener = listener;
+	}
+
+
+	/* </writability> */
+
+
 	/**
 	 * Thread safe
 	 */
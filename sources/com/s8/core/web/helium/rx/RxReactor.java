@@ -0,0 +1,631 @@
+package com.s8.core.web.helium.rx;
+
+import java.io.IOException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.s8.core.arch.silicon.SiliconEngine;
+
+
+/**
+ * <p>
+ * A reactor owns one <code>Selector</code> and the <code>SelectionKey</code>s
+ * of the connections registered on it. All I/O of these connections is
+ * processed by the reactor loop, so that
+ * <code>RxConnection.processReadyOps()</code> is never run concurrently for a
+ * given connection.
+ * </p>
+ * <p>
+ * Other threads (acceptor, application) never touch the selector directly:
+ * they post tasks that the reactor runs at the beginning of its next loop.
+ * Connections whose needs have changed are queued the same way, so that
+ * interest-ops updates only cost O(changed connections) per loop.
+ * </p>
+ * <p>
+ * Connection deadlines (idle, handshake, header) live in the reactor's
+ * <code>RxTimingWheel</code>: the loop never blocks in <code>select</code>
+ * past the next one.
+ * </p>
+ * <p>
+ * Each connection gets a bounded amount of work per loop (bytes read and
+ * written, frames processed). Connections left with work once their budget
+ * is exhausted are deferred to a ready queue and resumed in the next loop,
+ * which then polls the selector (<code>selectNow</code>) instead of blocking,
+ * so that heavy connections never starve light ones.
+ * </p>
+ * <p>
+ * Loops are either run as <code>SiliconEngine</code> watch tasks or on a
+ * dedicated thread (see <code>RxThreading</code>), optionally spinning on
+ * <code>selectNow</code> before blocking (busy-poll).
+ * </p>
+ *
+ * @author pierreconvert
+ *
+ */
+public class RxReactor {
+
+
+	/**
+	 * reactor name (for logging)
+	 */
+	public final String name;
+
+
+	final Selector selector;
+
+
+	/**
+	 * Tasks posted by other threads, run by the reactor before selecting
+	 */
+	private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+
+
+	/**
+	 * Connections whose interest ops must be recomputed (multiple producers,
+	 * single consumer: the reactor)
+	 */
+	private final Queue<RxConnection> updates = new ConcurrentLinkedQueue<>();
+
+
+	/**
+	 * Set when a wakeup has been issued and not consumed yet by the reactor, so
+	 * that many concurrent requests collapse into a single
+	 * <code>selector.wakeup()</code> call.
+	 */
+	private final AtomicBoolean isWakeupPending = new AtomicBoolean(false);
+
+
+	/**
+	 * Thread currently running the loop (no wakeup needed when signaled from it),
+	 * <code>null</code> between loops: with watch tasks, each loop may be run by a
+	 * different pool thread.
+	 */
+	private volatile Thread thread;
+
+
+	/**
+	 * live connections owned by this reactor
+	 */
+	private final RxConnectionRegistry registry;
+
+
+	/**
+	 * Number of admitted connections (live or pending registration). Incremented
+	 * by the acceptor, decremented by the reactor.
+	 */
+	private final AtomicInteger nConnections = new AtomicInteger(0);
+
+
+	/**
+	 * Maximum number of connections admitted on this reactor (clamped as the
+	 * registry capacity, so that an admitted connection always gets a slot)
+	 */
+	public final int capacity;
+
+
+	/**
+	 * Servers admitting connections on this reactor (notified on release):
+	 * usually one, several when servers share reactors (see
+	 * <code>RxServer.setHost()</code>)
+	 */
+	final List<RxServer> servers = new CopyOnWriteArrayList<>();
+
+
+	/**
+	 * Deadlines of the connections owned by this reactor
+	 */
+	final RxTimingWheel timers;
+
+
+	/**
+	 * Counters of this reactor (and of the connections it owns)
+	 */
+	final RxMetrics metrics;
+
+
+	/**
+	 * Time of the last wakeup of the loop (see <code>RxTimingWheel.now()</code>)
+	 */
+	long now;
+
+
+	/**
+	 * loop counter (budgets of connections are refilled on each loop)
+	 */
+	long loops = 0;
+
+
+	/**
+	 * Connections deferred in this loop (over budget), to be resumed in the next
+	 * one, and the ones being resumed in this loop (REACTOR OPERATED)
+	 */
+	private ArrayDeque<RxConnection> deferred = new ArrayDeque<>(), resumed = new ArrayDeque<>();
+
+
+	private final boolean rxIsVerbose;
+
+
+	/**
+	 * how loops are run
+	 */
+	private final RxThreading threading;
+
+
+	/**
+	 * cleared by <code>stop()</code>: no more loop once the current one is over
+	 */
+	private volatile boolean isRunning;
+
+
+	/**
+	 * time spent spinning on <code>selectNow</code> before blocking (ns, 0 if
+	 * disabled)
+	 */
+	private final long busyPollTime;
+
+
+	/**
+	 *
+	 * @param name
+	 * @param configuration
+	 * @throws IOException
+	 */
+	public RxReactor(String name, int capacity, RxWebConfiguration configuration) throws IOException {
+		super();
+		this.name = name;
+		this.capacity = Math.max(1, Math.min(capacity, RxConnectionRegistry.MAX_CAPACITY));
+		this.rxIsVerbose = configuration.isRxVerbose;
+		this.threading = configuration.threading;
+		this.busyPollTime = Math.max(0, configuration.busyPollTime) * 1000L;
+
+		registry = new RxConnectionRegistry(this.capacity);
+
+		metrics = new RxMetrics(name);
+
+		timers = new RxTimingWheel(configuration.timerResolution, RxTimingWheel.DEFAULT_NUMBER_OF_BUCKETS);
+		now = RxTimingWheel.now();
+
+		// open selector
+		selector = Selector.open();
+	}
+
+
+
+	/**
+	 * Start looping (see <code>RxWebConfiguration.threading</code>)
+	 * 
+	 * @param engine running the loops as watch tasks (if
+	 *               <code>SILICON_TASKS</code>)
+	 */
+	public void start(SiliconEngine engine) {
+		isRunning = true;
+		switch(threading) {
+
+		case DEDICATED_THREADS:
+			Thread thread = new Thread(() -> { while(isRunning) { serve(); } }, "rx-"+name);
+			thread.setDaemon(true);
+			thread.start();
+			break;
+
+		case SILICON_TASKS:
+		default:
+			engine.pushWatchTask(new SelectKeysTask(this));
+			break;
+		}
+	}
+
+
+	/**
+	 * Thread safe. Stop looping once the current loop is over (connections are
+	 * left as they are).
+	 */
+	public void stop() {
+		isRunning = false;
+		selector.wakeup();
+	}
+
+
+	/**
+	 * Thread safe
+	 *
+	 * @return true until <code>stop()</code> is called
+	 */
+	public boolean isRunning() {
+		return isRunning;
+	}
+
+
+	/**
+	 * Thread safe
+	 *
+	 * @return the number of connections currently owned by this reactor
+	 */
+	public int getConnectionCount() {
+		return nConnections.get();
+	}
+
+
+	/**
+	 * Thread safe. Reserve room for one more connection.
+	 * 
+	 * @return true if admitted (and counted), false if the reactor is at capacity
+	 */
+	boolean tryAdmit() {
+		int n;
+		do {
+			n = nConnections.get();
+			if(n >= capacity) { return false; }
+		}
+		while(!nConnections.compareAndSet(n, n + 1));
+		return true;
+	}
+
+
+	/**
+	 * Thread safe. Give back room reserved by <code>tryAdmit()</code>.
+	 */
+	void release() {
+		nConnections.decrementAndGet();
+		for(RxServer server : servers) { server.onConnectionReleased(); }
+	}
+
+
+	/**
+	 * /!\ REACTOR OPERATED, for thread safety reasons
+	 * 
+	 * @param identifier
+	 * @return the live connection with this identifier, <code>null</code> if closed
+	 */
+	public RxConnection getConnection(int identifier) {
+		return registry.get(identifier);
+	}
+
+
+	/**
+	 * Thread safe
+	 * 
+	 * @return the counters of this reactor
+	 */
+	public RxMetrics getMetrics() {
+		return metrics;
+	}
+
+
+	/**
+	 * /!\ REACTOR OPERATED, for thread safety reasons
+	 * 
+	 * @return the live connections of this reactor
+	 */
+	public RxConnectionRegistry getRegistry() {
+		return registry;
+	}
+
+
+	/**
+	 * 
+	 * @return true if called from the thread currently running this reactor's loop
+	 */
+	boolean isReactorThread() {
+		return Thread.currentThread() == thread;
+	}
+
+
+	/**
+	 * Thread safe. Task is run by the reactor thread at the beginning of its next loop.
+	 *
+	 * @param task
+	 */
+	public void post(Runnable task) {
+		tasks.add(task);
+		wakeup();
+	}
+
+
+	/**
+	 * Thread safe. Collapses with any other wakeup issued since the reactor last 
+	 * started selecting.
+	 */
+	public void wakeup() {
+		if(isWakeupPending.compareAndSet(false, true)) {
+			selector.wakeup();
+		}
+	}
+
+
+	/**
+	 * Thread safe. Queue the connection for an interest-ops update before the
+	 * next select. Called once per queuing: de-duplication is done by the
+	 * connection's need word.
+	 * 
+	 * @param connection
+	 */
+	void enqueue(RxConnection connection) {
+		updates.add(connection);
+
+		/* no need to wake up ourselves */
+		if(Thread.currentThread() != thread) { wakeup(); }
+	}
+
+
+
+	/**
+	 * /!\ REACTOR OPERATED
+	 * 
+	 * Resume connection in the next loop (whatever its readiness).
+	 * 
+	 * @param connection
+	 */
+	void defer(RxConnection connection) {
+		deferred.add(connection);
+	}
+
+
+
+	/**
+	 * /!\ REACTOR OPERATED, for thread safety reasons
+	 *
+	 * Register a freshly accepted channel on this reactor and create its connection.
+	 * The connection MUST have been admitted (see <code>tryAdmit()</code>).
+	 *
+	 * @param server
+	 * @param socketChannel (already in non-blocking mode)
+	 */
+	void register(RxServer server, SocketChannel socketChannel) {
+		try {
+			// no selection so far, but build key
+			SelectionKey selectionKey = socketChannel.register(selector, 0);
+
+			/* create connection */
+			RxConnection connection = server.createConnection(selectionKey, socketChannel);
+
+			adopt(selectionKey, connection);
+
+			metrics.onAccepted();
+		}
+		catch (IOException exception) {
+			if(rxIsVerbose) {
+				System.out.println("[RxReactor] "+name+" failed to register connection: "+exception.getMessage());
+			}
+
+			/* release admission */
+			release();
+
+			try {
+				socketChannel.close();
+			}
+			catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+	}
+
+
+	/**
+	 * /!\ REACTOR OPERATED, for thread safety reasons
+	 *
+	 * Take ownership of a connection whose channel has just been registered on
+	 * this reactor's selector. The connection MUST have been admitted (see
+	 * <code>tryAdmit()</code>).
+	 *
+	 * @param selectionKey
+	 * @param connection (initialized)
+	 */
+	void adopt(SelectionKey selectionKey, RxConnection connection) {
+
+		/* attach this connection to the key */
+		selectionKey.attach(connection);
+
+		/* the connection is now owned by this reactor */
+		connection.reactor = this;
+		connection.getInbound().metrics = metrics;
+		connection.getOutbound().metrics = metrics;
+
+		/* add connection to the pool (room has been reserved upon admission) */
+		registry.add(connection);
+
+		/* initial interest ops */
+		connection.updateInterestOps();
+
+		/* start counting */
+		connection.startTimeouts();
+	}
+
+
+	/**
+	 * /!\ REACTOR OPERATED, for thread safety reasons
+	 *
+	 * @param connection
+	 */
+	void onClosed(RxConnection connection) {
+		if(registry.remove(connection)) {
+			metrics.onClosed();
+			release();
+			if(connection.onReleased != null) { connection.onReleased.run(); }
+		}
+	}
+
+
+
+	/**
+	 * /!\ REACTOR OPERATED
+	 * 
+	 * Spin on <code>selectNow</code> until keys get selected, a wakeup is issued,
+	 * or <code>busyPollTime</code> (or the next deadline) has elapsed.
+	 * 
+	 * @param startTime (ns)
+	 * @param timeout next deadline (ms, 0 if none)
+	 * @return the number of selected keys (0 right away if busy-poll is disabled)
+	 * @throws IOException
+	 */
+	private int busyPoll(long startTime, long timeout) throws IOException {
+		if(busyPollTime == 0) { return 0; }
+
+		long duration = timeout > 0 ? Math.min(busyPollTime, timeout * 1000000L) : busyPollTime;
+		int nKeys;
+		while((nKeys = selector.selectNow()) == 0 
+				&& !isWakeupPending.get() 
+				&& System.nanoTime() - startTime < duration) {
+			Thread.onSpinWait();
+		}
+		return nKeys;
+	}
+
+
+	/**
+	 * One loop of the reactor
+	 */
+	void serve() {
+
+		try {
+
+			if(rxIsVerbose) {
+				System.out.println("\t->"+name+" loop++ (Selecting new keys)");
+			}
+
+			thread = Thread.currentThread();
+
+			long loopStartTime = System.nanoTime();
+
+			loops++;
+
+			/* 
+			 * consume pending wakeup BEFORE draining queues: anything queued after 
+			 * this point issues a new wakeup, so that next select returns immediately
+			 */
+			isWakeupPending.set(false);
+
+			// expire deadlines
+			now = loopStartTime / 1000000L;
+			timers.advance(now);
+
+			// run posted tasks
+			Runnable task;
+			while((task = tasks.poll()) != null) { task.run(); }
+
+			// update observables (changed connections only)
+			RxConnection connection;
+			while((connection = updates.poll()) != null) {
+				connection.clearUpdateQueued();
+				connection.updateInterestOps();
+			}
+
+			// select the right channels (no later than the next deadline)
+			long selectStartTime = System.nanoTime();
+			long timeout = timers.getTimeout(selectStartTime / 1000000L);
+
+			/* take over connections deferred in previous loop */
+			ArrayDeque<RxConnection> swap = resumed;
+			resumed = deferred;
+			deferred = swap;
+
+			if(!resumed.isEmpty()) {
+				/* work is already pending: do not block */
+				selector.selectNow();
+			}
+			else if(busyPoll(selectStartTime, timeout) > 0 || isWakeupPending.get()) {
+				/* keys selected (or tasks posted) while spinning: no blocking */
+			}
+			else if(timeout > 0) {
+				selector.select(timeout);
+			}
+			else {
+				selector.select();
+			}
+			long selectEndTime = System.nanoTime();
+			now = selectEndTime / 1000000L;
+
+			/*
+			extract the selected key set
+			 */
+			Set<SelectionKey> selectedKeys = selector.selectedKeys();
+
+			Iterator<SelectionKey> iterator = selectedKeys.iterator();
+
+			int nKeys = 0;
+
+			while (iterator.hasNext()) {
+
+				SelectionKey key = iterator.next();
+				nKeys++;
+
+				// filter OP_ACCEPT
+				if(key.isValid()) {
+					if (key.isAcceptable()) {
+
+						((RxServer) key.attachment()).acceptConnection(this, key);
+					}
+					/*
+					 *  perform other types of operations
+					 *  (the connection has already been created)
+					 */
+					else {
+						connection = (RxConnection) key.attachment();
+						connection.processReadyOps();
+
+						/* outbound connection completed: trade OP_CONNECT for I/O interests */
+						if(key.isValid() && (key.readyOps() & SelectionKey.OP_CONNECT) != 0) {
+							connection.updateInterestOps();
+						}
+					}
+				}
+
+
+				/* </connection-IO> */
+
+
+				/*
+				 * Remove this key from selection set. Because the Selector never does that, it
+				 * only adds to the set, so if you don't do it you will reprocess the event
+				 * yourself next time the Selector returns.
+				 *
+				 * I just recently learned that my foreach loop over the selected keys set is
+				 * bad. foreach uses the set's iterator. Modifying a collection directly (not
+				 * via the iterator's methods) while iterating over it may result in
+				 * "arbitrary, undeterministic" behavior.
+				 *
+				 * The selected keys set may provide a fail-fast iterator. Fail-fast iterators
+				 * detect such modifications and throw a ConcurrentModificationException upon
+				 * the next iteration. So modifying the set in a foreach either risks
+				 * undeterministic behavior or may cause exceptions - depending on the iterator
+				 * implementation.
+				 *
+				 * Solution: don't use foreach. Use the iterator and remove the key via
+				 * iterator.remove().
+				 */
+				iterator.remove();
+			}
+
+			// resume deferred connections (they might defer again, to next loop)
+			while((connection = resumed.poll()) != null) { connection.onResumed(); }
+
+			long loopEndTime = System.nanoTime();
+			metrics.onLoop(selectEndTime - selectStartTime, 
+					(selectStartTime - loopStartTime) + (loopEndTime - selectEndTime), nKeys);
+		}
+		catch (IOException e) {
+			e.printStackTrace();
+		}
+		catch (RuntimeException exception) {
+			/* one faulty connection (or callback, or timer) MUST NOT take the reactor down */
+			System.out.println("[RxReactor] "+name+" loop failed: "+exception);
+			exception.printStackTrace();
+
+			/* unprocessed keys are selected again by next select if still ready */
+			selector.selectedKeys().clear();
+		}
+		finally {
+			/* back to the pool (watch tasks): no longer the reactor thread */
+			thread = null;
+		}
+	}
+}
@@ -1,36 +1,132 @@
 package com.s8.core.web.helium.rx;
 
 import java.io.IOException;
+import java.net.BindException;
+import java.net.ConnectException;
 import java.net.InetSocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.StandardSocketOptions;
+import java.net.UnixDomainSocketAddress;
 import java.nio.channels.ClosedChannelException;
 import java.nio.channels.SelectionKey;
-import java.nio.channels.Selector;
 import java.nio.channels.ServerSocketChannel;
 import java.nio.channels.SocketChannel;
-import java.util.ArrayList;
-import java.util.Iterator;
-import java.util.List;
-import java.util.Set;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 
 /**
  * reactive web server 
+ * 
+ * <p>
+ * Connections are spread over <code>RxWebConfiguration.reactors</code>
+ * reactors, each running its own selector loop. With more than one reactor, a
+ * dedicated acceptor reactor handles OP_ACCEPT, unless listening is sharded
+ * (<code>SO_REUSEPORT</code>), in which case each reactor accepts on its own
+ * listener.
+ * </p>
+ * <p>
+ * With <code>RxBackend.VIRTUAL_THREADS</code>, there is no reactor at all:
+ * a virtual thread accepts on a blocking listener, and each connection is
+ * driven by its own virtual threads (see <code>RxVirtualDriver</code>).
+ * </p>
+ * <p>
+ * Listening is done on TCP <code>port</code>, or on a Unix domain socket if
+ * <code>RxWebConfiguration.unixSocketPath</code> is set (never sharded then).
+ * </p>
+ * <p>
+ * Several servers (ports, protocol stacks, configurations) can share one set
+ * of reactors: the first one is started normally, the others are given it as
+ * host (<code>setHost()</code>) and only add their listeners. Metrics are
+ * those of the reactor set, so they are only exposed by the host (see
+ * <code>getMetrics()</code>).
+ * </p>
  * @author pc
  *
  */
 public abstract class RxServer implements RxEndpoint {
 
 
-	public final static int INITIAL_POOL_SIZE = 1024;
-
 	private int port;
 
 	private int backlog;
 
-	private ServerSocketChannel serverSocketChannel;
+	/**
+	 * Unix domain socket to listen on instead of <code>port</code>,
+	 * <code>null</code> for TCP
+	 */
+	private UnixDomainSocketAddress unixDomainAddress;
+
+	/**
+	 * Listening channels: a single one, or one per reactor when sharded
+	 */
+	private ServerSocketChannel[] serverSocketChannels;
+
+
+	/**
+	 * true if each reactor listens on its own <code>SO_REUSEPORT</code> channel
+	 * (the kernel then spreads incoming connections)
+	 */
+	private boolean isSharded;
+
+
+	/**
+	 * Reactors owning the connections (and their selection keys)
+	 */
+	private RxReactor[] reactors;
+
+
+	/**
+	 * Dedicated acceptor reactor (only when running more than one reactor),
+	 * <code>null</code> otherwise.
+	 */
+	private RxReactor acceptor;
+
+
+	private RxBalancing balancing;
+
+
+	/**
+	 * acceptance sequence (acceptor operated)
+	 */
+	private int sequence = 0;
+
+
+	/**
+	 * Delay (ms) before accepting again after an accept failure
+	 */
+	public final static long ACCEPT_BACK_OFF = 100;
+
+
+	/**
+	 * Maximum number of connections accepted per OP_ACCEPT readiness
+	 */
+	private int acceptBatchSize;
+
+
+	/**
+	 * Selection keys of the listeners, and the reactors hosting them
+	 */
+	private SelectionKey[] acceptKeys;
 
-	Selector selector;
+	private RxReactor[] acceptReactors;
+
+
+	/**
+	 * true while OP_ACCEPT is deregistered because the pool is at capacity
+	 */
+	private final AtomicBoolean isAcceptSuspended = new AtomicBoolean(false);
+
+
+	/**
+	 * Connection slots (<code>RxBackend.VIRTUAL_THREADS</code> only,
+	 * <code>null</code> otherwise)
+	 */
+	private Semaphore slots;
 
 	AtomicBoolean isRunning;
 
@@ -42,7 +138,11 @@ public abstract class RxServer implements RxEndpoint {
 	final Object lock = new Object();
 
 
-	private List<RxConnection> pool = new ArrayList<>(INITIAL_POOL_SIZE);
+	/**
+	 * Server whose reactors are shared, <code>null</code> if this server runs
+	 * its own
+	 */
+	private RxServer host;
 
 
 	public RxServer() {
@@ -50,6 +150,19 @@ public abstract class RxServer implements RxEndpoint {
 	}
 
 
+	/**
+	 * Listen on the reactors of <code>host</code> instead of creating new ones
+	 * (e.g. HTTP redirection on port 80 next to the main server on 443).
+	 * <code>host</code> MUST have been started before this server, with the
+	 * <code>REACTOR</code> backend. MUST be called before <code>start()</code>.
+	 * 
+	 * @param host
+	 */
+	public void setHost(RxServer host) {
+		this.host = host;
+	}
+
+
 
 
 	/**
@@ -97,18 +210,253 @@ public abstract class RxServer implements RxEndpoint {
 		RxWebConfiguration configuration = getWebConfiguration();
 		port = configuration.port;
 		backlog = configuration.backlog;
+		unixDomainAddress = configuration.unixSocketPath != null ? 
+				UnixDomainSocketAddress.of(configuration.unixSocketPath) : null;
 		rxIsVerbose = configuration.isRxVerbose;
 
 		isSelecting = new AtomicBoolean(false);
 
 		isRunning = new AtomicBoolean(false);
 
+		if(configuration.backend == RxBackend.VIRTUAL_THREADS) {
+			startVirtualThreads(configuration);
+			return;
+		}
+
+
+		if(host != null) {
+			startRxLayer(host, configuration);
+			return;
+		}
+
+		// create reactors
+		int nReactors = Math.max(1, configuration.reactors);
+		balancing = configuration.balancing;
+		reactors = new RxReactor[nReactors];
+
+		/* poolCapacity is shared among reactors */
+		int reactorCapacity = (Math.max(1, configuration.poolCapacity) + nReactors - 1) / nReactors;
+		for(int i = 0; i < nReactors; i++) {
+			reactors[i] = new RxReactor("reactor-"+i, reactorCapacity, configuration);
+			reactors[i].servers.add(this);
+		}
+		acceptBatchSize = Math.max(1, configuration.acceptBatchSize);
+
+		isSharded = isSharding(configuration);
+
+		/* 
+		 * With more than one reactor (and no sharding), accepting is done by a dedicated 
+		 * reactor so that connection I/O is never delayed by bursts of accept calls.
+		 */
+		acceptor = !isSharded && nReactors > 1 ? new RxReactor("acceptor", 0, configuration) : null;
+
+		listen();
+
+		// start the system
+		if(acceptor != null) {
+			acceptor.start(getSiliconEngine());
+		}
+		for(RxReactor reactor : reactors) {
+			reactor.start(getSiliconEngine());
+		}
+	}
+
+
+	/**
+	 * Start listening on the (already running) reactors of <code>host</code>:
+	 * connections of both servers share reactor threads and pool capacity,
+	 * while listeners, <code>createConnection</code> and connection-level
+	 * configuration remain those of this server. Reactor-level settings
+	 * (threading, budgets, timer resolution...) are those of the host.
+	 * 
+	 * @param host
+	 * @param configuration
+	 * @throws IOException
+	 */
+	private void startRxLayer(RxServer host, RxWebConfiguration configuration) throws IOException {
+		if(host.reactors == null || host.reactors.length == 0) {
+			throw new IllegalStateException("[RxServer] host has no reactor (not started yet, or virtual-thread backend)");
+		}
+		reactors = host.reactors;
+		acceptor = host.acceptor;
+		balancing = configuration.balancing;
+		acceptBatchSize = Math.max(1, configuration.acceptBatchSize);
+		isSharded = isSharding(configuration);
+
+		for(RxReactor reactor : reactors) { reactor.servers.add(this); }
+
+		listen();
+
+		/* reactors are already selecting: let them pick up the new keys */
+		for(RxReactor reactor : acceptReactors) { reactor.wakeup(); }
+	}
+
+
+	/**
+	 * 
+	 * @param configuration
+	 * @return true if each reactor should listen on its own <code>SO_REUSEPORT</code> channel
+	 * @throws IOException
+	 */
+	private boolean isSharding(RxWebConfiguration configuration) throws IOException {
+		/* no SO_REUSEPORT on Unix domain sockets */
+		boolean isSharding = configuration.isReusePort && unixDomainAddress == null && isReusePortSupported();
+		if(configuration.isReusePort && !isSharding) {
+			System.out.println("[RxServer] SO_REUSEPORT is not supported: falling back to a single listener");
+		}
+		return isSharding;
+	}
+
+
+	/**
+	 * Open listeners and register them for OP_ACCEPT: one per reactor if
+	 * sharded, a single one on the acceptor (or the only reactor) otherwise.
+	 * The key attachment is this server, so several servers can listen on the
+	 * same reactors.
+	 * 
+	 * @throws IOException
+	 */
+	private void listen() throws IOException {
+		if(isSharded) {
+			/* one listener per reactor, each accepting for itself */
+			int nReactors = reactors.length;
+			serverSocketChannels = new ServerSocketChannel[nReactors];
+			acceptKeys = new SelectionKey[nReactors];
+			acceptReactors = new RxReactor[nReactors];
+			for(int i = 0; i < nReactors; i++) {
+				serverSocketChannels[i] = openServerSocketChannel(true);
+				acceptKeys[i] = serverSocketChannels[i].register(reactors[i].selector, SelectionKey.OP_ACCEPT, this);
+				acceptReactors[i] = reactors[i];
+			}
+		}
+		else {
+			ServerSocketChannel serverSocketChannel = openServerSocketChannel(false);
+			serverSocketChannels = new ServerSocketChannel[] { serverSocketChannel };
+
+			// register socket channel for integrating for accepting new connection with selector
+			RxReactor accepting = acceptor != null ? acceptor : reactors[0];
+			acceptKeys = new SelectionKey[] { 
+					serverSocketChannel.register(accepting.selector, SelectionKey.OP_ACCEPT, this) };
+			acceptReactors = new RxReactor[] { accepting };
+		}
+	}
+
+
+	/**
+	 * Start the virtual-thread backend: no reactor, a blocking listener, and an
+	 * acceptor virtual thread.
+	 * 
+	 * @param configuration
+	 * @throws IOException
+	 */
+	private void startVirtualThreads(RxWebConfiguration configuration) throws IOException {
+		reactors = new RxReactor[0];
+		acceptor = null;
+		isSharded = false;
+		slots = new Semaphore(Math.max(1, configuration.poolCapacity));
+
+		ServerSocketChannel serverSocketChannel = openServerSocketChannel(false);
+		serverSocketChannel.configureBlocking(true);
+		serverSocketChannels = new ServerSocketChannel[] { serverSocketChannel };
+		acceptKeys = new SelectionKey[0];
+		acceptReactors = new RxReactor[0];
+
+		Thread.ofVirtual().name("acceptor").start(() -> acceptConnections(serverSocketChannel, configuration));
+	}
+
+
+	/**
+	 * /!\ ACCEPTOR (virtual thread) OPERATED
+	 * 
+	 * Same admission policy as reactors: a slot is acquired BEFORE accepting, so
+	 * that, at capacity, connections wait in the kernel backlog.
+	 * 
+	 * @param serverSocketChannel (blocking)
+	 * @param configuration
+	 */
+	private void acceptConnections(ServerSocketChannel serverSocketChannel, RxWebConfiguration configuration) {
+		while(serverSocketChannel.isOpen()) {
+			try {
+				slots.acquire();
+			}
+			catch (InterruptedException exception) {
+				return;
+			}
+
+			SocketChannel socketChannel;
+			try {
+				socketChannel = serverSocketChannel.accept();
+			}
+			catch (ClosedChannelException exception) {
+				slots.release();
+				return;
+			}
+			catch (IOException exception) {
+				slots.release();
+
+				/* typically: too many open files. Back off instead of spinning */
+				if(rxIsVerbose) {
+					System.out.println("[RxServer] accept failed ("+exception.getMessage()+"), backing off");
+				}
+				try {
+					Thread.sleep(ACCEPT_BACK_OFF);
+				}
+				catch (InterruptedException e) {
+					return;
+				}
+				continue;
+			}
+
+			int index = sequence++;
+			Thread.ofVirtual().name("connection-"+index).start(() -> {
+				RxConnection connection;
+				try {
+					/* no key: the connection is driven by virtual threads */
+					connection = createConnection(null, socketChannel);
+				}
+				catch (IOException exception) {
+					slots.release();
+					try {
+						socketChannel.close();
+					}
+					catch (IOException e) {
+						e.printStackTrace();
+					}
+					return;
+				}
+				new RxVirtualDriver(connection, configuration, slots::release).run();
+			});
+		}
+	}
 
-		// open selector
-		selector = Selector.open();
+
+	/**
+	 * 
+	 * @param isReusingPort
+	 * @return a bound, non-blocking server socket channel (on
+	 *         <code>unixDomainAddress</code> if set, <code>port</code>
+	 *         otherwise)
+	 * @throws IOException
+	 */
+	private ServerSocketChannel openServerSocketChannel(boolean isReusingPort) throws IOException {
+
+		if(unixDomainAddress != null) {
+			ServerSocketChannel serverSocketChannel = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+
+			/* a socket file left over by a previous run would prevent binding */
+			deleteStaleSocketFile(unixDomainAddress);
+			serverSocketChannel.bind(unixDomainAddress, backlog);
+			serverSocketChannel.configureBlocking(false);
+			return serverSocketChannel;
+		}
 
 		// create new server socket
-		serverSocketChannel = ServerSocketChannel.open();
+		ServerSocketChannel serverSocketChannel = ServerSocketChannel.open();
+
+		// share port with the other listeners (MUST be set before binding)
+		if(isReusingPort) {
+			serverSocketChannel.setOption(StandardSocketOptions.SO_REUSEPORT, true);
+		}
 
 		// bind it to its address and port
 		serverSocketChannel.bind(new InetSocketAddress(port), backlog);
@@ -116,136 +464,316 @@ public abstract class RxServer implements RxEndpoint {
 		// activate non-blocking mode
 		serverSocketChannel.configureBlocking(false);
 
-		// register socket channel for integrating for accepting new connection with selector
-		serverSocketChannel.register(selector, SelectionKey.OP_ACCEPT);
+		return serverSocketChannel;
+	}
+
 
-		// start the system
-		getSiliconEngine().pushWatchTask(new SelectKeysTask(this));
+	/**
+	 * A socket file left over by a previous run (i.e. nobody listening on it
+	 * anymore) is deleted. Anything else found at this path is left untouched
+	 * and binding fails: another file, or a socket a live server listens on.
+	 * 
+	 * @param address
+	 * @throws BindException if the path is taken
+	 * @throws IOException
+	 */
+	private static void deleteStaleSocketFile(UnixDomainSocketAddress address) throws IOException {
+		Path path = address.getPath();
+		if(!Files.exists(path, LinkOption.NOFOLLOW_LINKS)) { return; }
+
+		if(!isSocketFile(path)) {
+			throw new BindException("Cannot bind Unix domain socket: "+path+" exists and is not a socket");
+		}
+
+		/* stale if connection is refused */
+		try(SocketChannel probe = SocketChannel.open(StandardProtocolFamily.UNIX)) {
+			probe.connect(address);
+		}
+		catch(ConnectException exception) {
+			Files.deleteIfExists(path);
+			return;
+		}
+		catch(IOException exception) {
+			BindException bindException = new BindException("Cannot bind Unix domain socket: "+path
+					+" exists and cannot be probed ("+exception.getMessage()+")");
+			bindException.initCause(exception);
+			throw bindException;
+		}
+		throw new BindException("Cannot bind Unix domain socket: "+path+" is in use by a listening server");
 	}
 
-	
 
+	/**
+	 * 
+	 * @param path
+	 * @return true if <code>path</code> is a socket file (not following links)
+	 * @throws IOException
+	 */
+	private static boolean isSocketFile(Path path) throws IOException {
+		try {
+			int mode = (Integer) Files.getAttribute(path, "unix:mode", LinkOption.NOFOLLOW_LINKS);
+			return (mode & 0170000) == 0140000; /* S_IFSOCK */
+		}
+		catch(UnsupportedOperationException | IllegalArgumentException exception) {
+			/* no unix view: not a regular file, a directory, nor a link */
+			return Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS).isOther();
+		}
+	}
 
 
 	/**
 	 * 
+	 * @return true if the platform supports <code>SO_REUSEPORT</code> on server sockets
+	 * @throws IOException
 	 */
-	void serve() {
+	private static boolean isReusePortSupported() throws IOException {
+		try(ServerSocketChannel channel = ServerSocketChannel.open()) {
+			return channel.supportedOptions().contains(StandardSocketOptions.SO_REUSEPORT);
+		}
+	}
 
-		try {
 
-			if(rxIsVerbose) {
-				System.out.println("\t->server loop++ (Selecting new keys)");	
-			}
+	/**
+	 * 
+	 * @return the reactors of this server
+	 */
+	public RxReactor[] getReactors() {
+		return reactors;
+	}
 
-			// update observables
-			pool.forEach(connection -> connection.updateInterestOps());
 
-			// select the right channels
-			selector.select();
 
-			/*
-			extract the selected key set
-			 */
-			Set<SelectionKey> selectedKeys = selector.selectedKeys();
+	/**
+	 * Thread safe
+	 * 
+	 * <p>
+	 * Counters are kept per reactor, not per listener: the snapshot of a host
+	 * covers the traffic of all the servers it hosts, so that hosted servers do
+	 * not expose any (summing them up would count the same traffic twice).
+	 * </p>
+	 * 
+	 * @return the counters of all reactors (acceptor included), summed up
+	 * @throws IllegalStateException if this server is hosted (see
+	 *         <code>setHost()</code>): ask the host instead
+	 */
+	public RxMetrics.Snapshot getMetrics() {
+		if(host != null) {
+			throw new IllegalStateException("[RxServer] server:"+port+" is hosted: metrics are those of its host (server:"+host.port+")");
+		}
+		int n = reactors.length;
+		RxMetrics.Snapshot[] snapshots = new RxMetrics.Snapshot[acceptor != null ? n + 1 : n];
+		for(int i = 0; i < n; i++) { snapshots[i] = reactors[i].metrics.snapshot(); }
+		if(acceptor != null) { snapshots[n] = acceptor.metrics.snapshot(); }
+		return RxMetrics.Snapshot.sum("server:"+port, snapshots);
+	}
 
-			Iterator<SelectionKey> iterator = selectedKeys.iterator();
 
-			while (iterator.hasNext()) {
 
-				SelectionKey key = iterator.next();
+	/**
+	 * /!\ REACTOR OPERATED (by the reactor hosting the server socket channel)
+	 * 
+	 * Drain up to <code>acceptBatchSize</code> pending connections. Room is
+	 * reserved BEFORE accepting: at capacity, connections are left in the kernel
+	 * backlog and accepting is suspended until a connection is released.
+	 * 
+	 * @param accepting the reactor on which OP_ACCEPT has been selected
+	 * @param key the selection key of the listener that is ready
+	 */
+	void acceptConnection(RxReactor accepting, SelectionKey key) {
+		ServerSocketChannel serverSocketChannel = (ServerSocketChannel) key.channel();
 
-				// filter OP_ACCEPT
-				if(key.isValid()) {
-					if (key.isAcceptable()) {
+		for(int i = 0; i < acceptBatchSize; i++) {
 
-						acceptConnection();
-					}
-					/*
-					 *  perform other types of operations
-					 *  (the connection has already been created)
-					 */
-					else { 
-						((RxConnection) key.attachment()).processReadyOps();
-					}
+			/* 
+			 * pick the reactor that will own the connection (sharded: the kernel has 
+			 * already balanced, so keep it local)
+			 */
+			RxReactor admitted = admit(isSharded ? accepting : balancing.select(reactors, sequence));
+
+			if(admitted == null) {
+				/* pool is at capacity */
+				suspendAccepting();
+				return;
+			}
+
+			/* accept triggers creation of socket channel */
+			SocketChannel socketChannel;
+			try {
+				socketChannel = serverSocketChannel.accept();
+			}
+			catch (ClosedChannelException exception) {
+				admitted.release();
+				return;
+			}
+			catch (IOException exception) {
+				admitted.release();
+
+				/* typically: too many open files. Back off instead of spinning on a ready key */
+				if(rxIsVerbose) {
+					System.out.println("[RxServer] accept failed ("+exception.getMessage()+"), backing off");
 				}
+				backOff(accepting, key);
+				return;
+			}
+
+			/* backlog drained */
+			if(socketChannel == null) {
+				admitted.release();
+				return;
+			}
 
+			sequence++;
 
-				/* </connection-IO> */
+			/* now that the channel is known, balancing might prefer another reactor (e.g. NAPI ID) */
+			RxReactor reactor = isSharded ? admitted : reassign(admitted, socketChannel);
 
+			try {
+				/* setup channel as NON-BLOCKING (always) */
+				socketChannel.configureBlocking(false);
+			}
+			catch (IOException exception) {
+				reactor.release();
+				try {
+					socketChannel.close();
+				}
+				catch (IOException e) {
+					e.printStackTrace();
+				}
+				continue;
+			}
 
-				/*
-				 * Remove this key from selection set. Because the Selector never does that, it
-				 * only adds to the set, so if you don't do it you will reprocess the event
-				 * yourself next time the Selector returns.
-				 * 
-				 * I just recently learned that my foreach loop over the selected keys set is
-				 * bad. foreach uses the set's iterator. Modifying a collection directly (not
-				 * via the iterator's methods) while iterating over it may result in
-				 * "arbitrary, undeterministic" behavior.
-				 * 
-				 * The selected keys set may provide a fail-fast iterator. Fail-fast iterators
-				 * detect such modifications and throw a ConcurrentModificationException upon
-				 * the next iteration. So modifying the set in a foreach either risks
-				 * undeterministic behavior or may cause exceptions - depending on the iterator
-				 * implementation.
-				 * 
-				 * Solution: don't use foreach. Use the iterator and remove the key via
-				 * iterator.remove().
-				 */
-				iterator.remove();
+			if(reactor == accepting) {
+				/* same thread, register right away */
+				reactor.register(this, socketChannel);
+			}
+			else {
+				/* hand over to the owner, which registers on its own selector */
+				reactor.post(() -> reactor.register(this, socketChannel));
 			}
 		}
-		catch (IOException e) {
-			e.printStackTrace();
-		}	
 	}
 
 
-	private void acceptConnection() throws IOException {
-		try {
-			
-			/* accept triggers creation of socket channel */
-			SocketChannel socketChannel = serverSocketChannel.accept();
-			
-			/* setup channel as NON-BLOCKING (always) */
-			socketChannel.configureBlocking(false);
-			
+	/**
+	 * 
+	 * @param admitted the reactor that has admitted the connection
+	 * @param socketChannel the accepted channel
+	 * @return the reactor that will own the connection: the one preferred by
+	 *         balancing if it has room (the slot in <code>admitted</code> is
+	 *         then given back), <code>admitted</code> otherwise
+	 */
+	private RxReactor reassign(RxReactor admitted, SocketChannel socketChannel) {
+		RxReactor preferred = balancing.reselect(reactors, socketChannel, admitted);
+		if(preferred != admitted && preferred.tryAdmit()) {
+			admitted.release();
+			return preferred;
+		}
+		return admitted;
+	}
+
 
-			if(socketChannel!=null) {
+	/**
+	 * Stop selecting OP_ACCEPT on all listeners (pending connections wait in the
+	 * kernel backlog)
+	 */
+	private void suspendAccepting() {
+		for(SelectionKey acceptKey : acceptKeys) {
+			if(acceptKey.isValid()) { acceptKey.interestOps(0); }
+		}
+		isAcceptSuspended.set(true);
+
+		if(rxIsVerbose) {
+			System.out.println("[RxServer] pool capacity reached, accepting suspended");
+		}
 
-				// no selection so far, but build key
-				SelectionKey selectionKey = socketChannel.register(selector, 0);
+		/* a connection may have been released in the meantime */
+		if(hasRoom()) { resumeAccepting(); }
+	}
 
-				/* create connection */
-				RxConnection connection = createConnection(selectionKey, socketChannel);				
 
-				/* attach this connection to the key */
-				selectionKey.attach(connection);
+	/**
+	 * Thread safe. Called by reactors whenever a connection has been released.
+	 */
+	void onConnectionReleased() {
+		if(isAcceptSuspended.get()) { resumeAccepting(); }
+	}
 
-				/* add connection to the pool */
-				pool.add(connection);						
 
-			}	
+	/**
+	 * Thread safe. Re-arm OP_ACCEPT on all listeners (by their own reactor).
+	 */
+	private void resumeAccepting() {
+		if(isAcceptSuspended.compareAndSet(true, false)) {
+			if(rxIsVerbose) {
+				System.out.println("[RxServer] accepting resumed");
+			}
+			for(int i = 0; i < acceptKeys.length; i++) {
+				SelectionKey acceptKey = acceptKeys[i];
+				acceptReactors[i].post(() -> {
+					if(acceptKey.isValid()) { acceptKey.interestOps(SelectionKey.OP_ACCEPT); }
+				});
+			}
 		}
-		catch (ClosedChannelException e) {
-			e.printStackTrace();
+	}
+
+
+	/**
+	 * /!\ REACTOR OPERATED (by the reactor hosting the listener)
+	 * 
+	 * @param accepting
+	 * @param key
+	 */
+	private void backOff(RxReactor accepting, SelectionKey key) {
+		key.interestOps(0);
+		accepting.timers.schedule(new RxTimer() {
+			protected @Override void onExpired(long now) {
+				if(key.isValid()) { key.interestOps(SelectionKey.OP_ACCEPT); }
+			}
+		}, accepting.now + ACCEPT_BACK_OFF);
+	}
+
+
+	/**
+	 * 
+	 * @return true if at least one reactor can admit one more connection
+	 */
+	private boolean hasRoom() {
+		for(RxReactor reactor : reactors) {
+			if(reactor.getConnectionCount() < reactor.capacity) { return true; }
 		}
-		catch (IOException e) {
-			e.printStackTrace();
+		return false;
+	}
+
+
+	/**
+	 * 
+	 * @param preferred
+	 * @return the reactor that has admitted the connection, <code>null</code> if all are full
+	 */
+	private RxReactor admit(RxReactor preferred) {
+		if(preferred.tryAdmit()) { return preferred; }
+		for(RxReactor reactor : reactors) {
+			if(reactor != preferred && reactor.tryAdmit()) { return reactor; }
 		}
+		return null;
 	}
 
 
 	@Override
 	public void stop() throws Exception {
 		//getApp().stopProcessingUnits(); --> MUST now be external
+
+		/* reactors of a host are stopped by the host */
+		if(host == null && reactors != null) {
+			for(RxReactor reactor : reactors) { reactor.stop(); }
+			if(acceptor != null) { acceptor.stop(); }
+		}
 	}
 
 
 	@Override
 	public void keySelectorWakeup() {
-		selector.wakeup();
+		for(RxReactor reactor : reactors) { reactor.wakeup(); }
 	}
 	
 	
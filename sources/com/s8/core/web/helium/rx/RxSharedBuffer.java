@@ -0,0 +1,116 @@
+package com.s8.core.web.helium.rx;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+/**
+ * <p>
+ * Reference counted buffer borrowed from a <code>RxBufferPool</code>: the
+ * owner writes into it, and readers keep slices of its content (referencing
+ * the backing array, no copy) for as long as they need them.
+ * </p>
+ * <p>
+ * The owner holds the first reference. Each reader calls
+ * <code>retain()</code> before keeping a slice, and <code>release()</code>
+ * once done with it. The buffer goes back to the pool when the last reference
+ * is released. Bytes that have been handed out MUST NOT be overwritten by the
+ * owner.
+ * </p>
+ * <p>
+ * Thread safe (reference counting only).
+ * </p>
+ *
+ * @author pierreconvert
+ *
+ */
+public class RxSharedBuffer {
+
+
+	private final RxBufferPool pool;
+
+	private final ByteBuffer buffer;
+
+	private final AtomicInteger nReferences = new AtomicInteger(1);
+
+
+	/**
+	 *
+	 * @param pool (MUST provide array backed buffers)
+	 * @param capacity the minimum capacity
+	 */
+	public RxSharedBuffer(RxBufferPool pool, int capacity) {
+		super();
+		this.pool = pool;
+		this.buffer = pool.borrow(capacity);
+	}
+
+
+	/**
+	 * /!\ OWNER ONLY
+	 *
+	 * @return the underlying buffer
+	 */
+	public ByteBuffer getBuffer() {
+		return buffer;
+	}
+
+
+	/**
+	 *
+	 * @return the backing array
+	 */
+	public byte[] array() {
+		return buffer.array();
+	}
+
+
+	/**
+	 *
+	 * @param index a position in the underlying buffer
+	 * @return the corresponding offset in the backing array
+	 */
+	public int offset(int index) {
+		return buffer.arrayOffset() + index;
+	}
+
+
+	/**
+	 * Thread safe. Take one more reference.
+	 *
+	 * @return this
+	 */
+	public RxSharedBuffer retain() {
+		int n;
+		do {
+			n = nReferences.get();
+			if(n <= 0) { throw new IllegalStateException("Buffer has already been released"); }
+		}
+		while(!nReferences.compareAndSet(n, n + 1));
+		return this;
+	}
+
+
+	/**
+	 * Thread safe. Give back one reference: the buffer returns to the pool once
+	 * the last one is released.
+	 */
+	public void release() {
+		int n = nReferences.decrementAndGet();
+		if(n == 0) {
+			pool.release(buffer);
+		}
+		else if(n < 0) {
+			throw new IllegalStateException("Buffer released more times than retained");
+		}
+	}
+
+
+	/**
+	 *
+	 * @return the current number of references
+	 */
+	public int getReferenceCount() {
+		return nReferences.get();
+	}
+}
@@ -1,7 +1,14 @@
 package com.s8.core.web.helium.rx;
 
+import java.io.IOException;
 import java.net.Socket;
 import java.net.SocketException;
+import java.net.SocketOption;
+import java.net.StandardSocketOptions;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.SocketChannel;
+
+import jdk.net.ExtendedSocketOptions;
 
 import com.s8.core.io.xml.annotations.XML_SetElement;
 import com.s8.core.io.xml.annotations.XML_Type;
@@ -79,6 +86,106 @@ public class RxSocketConfiguration {
 
 
 
+
+	/* <extended> (jdk.net, Linux mostly: silently skipped where not supported) */
+
+	private boolean TCP_QUICKACK_isEnabled = false;
+
+	private boolean TCP_QUICKACK_isSet = false;
+
+	/**
+	 * Send ACKs right away instead of delaying them. Note that Linux does not
+	 * keep this flag for good: it applies to the start of the connection.
+	 * 
+	 * @param flag
+	 */
+	@XML_SetElement(tag="TCP_QUICKACK")
+	public void TCP_QUICKACK_set(boolean flag) {
+		this.TCP_QUICKACK_isEnabled = flag;
+		this.TCP_QUICKACK_isSet = true;
+	}
+
+
+	/**
+	 * -1: not set
+	 */
+	private int TCP_KEEPIDLE = -1;
+
+	/**
+	 * Idle time (in seconds) before keep-alive probes are sent (requires
+	 * <code>keep-alive</code>)
+	 * 
+	 * @param seconds
+	 */
+	@XML_SetElement(tag="TCP_KEEPIDLE")
+	public void TCP_KEEPIDLE_set(int seconds) {
+		this.TCP_KEEPIDLE = seconds;
+	}
+
+
+	/**
+	 * -1: not set
+	 */
+	private int TCP_KEEPINTERVAL = -1;
+
+	/**
+	 * Time (in seconds) between keep-alive probes
+	 * 
+	 * @param seconds
+	 */
+	@XML_SetElement(tag="TCP_KEEPINTERVAL")
+	public void TCP_KEEPINTERVAL_set(int seconds) {
+		this.TCP_KEEPINTERVAL = seconds;
+	}
+
+
+	/**
+	 * -1: not set
+	 */
+	private int TCP_KEEPCOUNT = -1;
+
+	/**
+	 * Number of unanswered keep-alive probes before the connection is dropped
+	 * 
+	 * @param count
+	 */
+	@XML_SetElement(tag="TCP_KEEPCOUNT")
+	public void TCP_KEEPCOUNT_set(int count) {
+		this.TCP_KEEPCOUNT = count;
+	}
+
+	/* </extended> */
+
+
+
+	/**
+	 * Configure the socket of a channel. Unix domain channels have no TCP/IP
+	 * level: only buffer sizes are applied, other options are skipped.
+	 * 
+	 * @param socketChannel
+	 * @param isVerbose
+	 */
+	public void setup(SocketChannel socketChannel, boolean isVerbose) {
+		if(!isUnixDomain(socketChannel)) {
+			setup(socketChannel.socket(), isVerbose);
+			return;
+		}
+
+		if(isReceiveBufferSizeSet) {
+			setChannelOption(socketChannel, StandardSocketOptions.SO_RCVBUF, receiveBufferSize, isVerbose);
+		}
+
+		if(isSendBufferSizeSet) {
+			setChannelOption(socketChannel, StandardSocketOptions.SO_SNDBUF, sendBufferSize, isVerbose);
+		}
+
+		if(isVerbose && (isKeepAliveEnabledSet || isTrafficClassSet || OOBINLINE_isSet || TCP_NODELAY_isSet 
+				|| TCP_QUICKACK_isSet || TCP_KEEPIDLE > 0 || TCP_KEEPINTERVAL > 0 || TCP_KEEPCOUNT > 0)) {
+			System.out.println("\t TCP/IP socket options do not apply to Unix domain sockets, discarded");
+		}
+	}
+
+
 	public void setup(Socket socket, boolean isVerbose) {
 
 		if(isReceiveBufferSizeSet) {
@@ -152,8 +259,129 @@ public class RxSocketConfiguration {
 				}
 			}
 		}
+
+		if(TCP_QUICKACK_isSet) {
+			setExtendedOption(socket, ExtendedSocketOptions.TCP_QUICKACK, TCP_QUICKACK_isEnabled, isVerbose);
+		}
+
+		if(TCP_KEEPIDLE > 0) {
+			setExtendedOption(socket, ExtendedSocketOptions.TCP_KEEPIDLE, TCP_KEEPIDLE, isVerbose);
+		}
+
+		if(TCP_KEEPINTERVAL > 0) {
+			setExtendedOption(socket, ExtendedSocketOptions.TCP_KEEPINTERVAL, TCP_KEEPINTERVAL, isVerbose);
+		}
+
+		if(TCP_KEEPCOUNT > 0) {
+			setExtendedOption(socket, ExtendedSocketOptions.TCP_KEEPCOUNT, TCP_KEEPCOUNT, isVerbose);
+		}
+	}
+
+
+	/**
+	 * 
+	 * @param <T>
+	 * @param socket
+	 * @param option
+	 * @param value
+	 * @param isVerbose
+	 */
+	private static <T> void setExtendedOption(Socket socket, SocketOption<T> option, T value, boolean isVerbose) {
+		try {
+			if(socket.supportedOptions().contains(option)) {
+				socket.setOption(option, value);
+			}
+			else if(isVerbose) {
+				System.out.println("\t socket "+option.name()+" option is not supported on this platform, discarded");
+			}
+		}
+		catch (IOException | UnsupportedOperationException exception) {
+			if(isVerbose) {
+				System.out.println("\t ERROR while setting socket "+option.name()+" option, discarded");
+				exception.printStackTrace();
+			}
+		}
+	}
+
+
+	/**
+	 * 
+	 * @param <T>
+	 * @param socketChannel
+	 * @param option
+	 * @param value
+	 * @param isVerbose
+	 */
+	private static <T> void setChannelOption(SocketChannel socketChannel, SocketOption<T> option, T value, boolean isVerbose) {
+		try {
+			socketChannel.setOption(option, value);
+		}
+		catch (IOException | UnsupportedOperationException exception) {
+			if(isVerbose) {
+				System.out.println("\t ERROR while setting socket "+option.name()+" option, discarded");
+				exception.printStackTrace();
+			}
+		}
+	}
+
+
+	/**
+	 * 
+	 * @param socketChannel
+	 * @return true if <code>socketChannel</code> is a Unix domain channel (no
+	 *         <code>Socket</code> adaptor, no TCP/IP option)
+	 */
+	public static boolean isUnixDomain(SocketChannel socketChannel) {
+		try {
+			return socketChannel.getLocalAddress() instanceof UnixDomainSocketAddress;
+		}
+		catch (IOException exception) {
+			/* closed: nothing left to configure or read anyway */
+			return false;
+		}
+	}
+
+
+	/**
+	 * 
+	 * @param socketChannel
+	 * @return the NAPI ID of the NIC receive queue that the last packet of this
+	 *         connection came through (Linux), 0 if unknown (no packet yet, no
+	 *         multi-queue device) or not supported
+	 */
+	public static int getIncomingNapiId(SocketChannel socketChannel) {
+		try {
+			if(socketChannel.supportedOptions().contains(ExtendedSocketOptions.SO_INCOMING_NAPI_ID)) {
+				Integer napiId = socketChannel.getOption(ExtendedSocketOptions.SO_INCOMING_NAPI_ID);
+				return napiId != null ? napiId : 0;
+			}
+		}
+		catch (IOException | UnsupportedOperationException exception) {
+			/* not available: unknown */
+		}
+		return 0;
 	}
 
+	public static void read(SocketChannel socketChannel) {
+		if(!isUnixDomain(socketChannel)) {
+			read(socketChannel.socket());
+			return;
+		}
+		try {
+			System.out.println("\t <Socket-configuration>");
+			System.out.println("\t\t remote address (Unix domain): "+socketChannel.getRemoteAddress());
+			System.out.println("\t\t receive buffer size: "+socketChannel.getOption(StandardSocketOptions.SO_RCVBUF));
+			System.out.println("\t\t send buffer size: "+socketChannel.getOption(StandardSocketOptions.SO_SNDBUF));
+			System.out.println("\t\t is connected?: "+socketChannel.isConnected());
+			System.out.println("\t </Socket-configuration>");
+		}
+		catch (IOException exception) {
+			System.out.println("\t ERROR while reading socket configuration");
+			exception.printStackTrace();
+		}
+	}
+
+
 	public static void read(Socket socket) {
 		// verbose part
 		try {
@@ -167,9 +395,16 @@ public class RxSocketConfiguration {
 			System.out.println("\t\t is bound?: "+socket.isBound());
 			System.out.println("\t\t is OOBINLINE enabled?: "+socket.getOOBInline());
 			System.out.println("\t\t is TCP_NODELAY enabled?: "+socket.getTcpNoDelay());
+			for(SocketOption<?> option : new SocketOption<?>[] { ExtendedSocketOptions.TCP_QUICKACK, 
+					ExtendedSocketOptions.TCP_KEEPIDLE, ExtendedSocketOptions.TCP_KEEPINTERVAL, 
+					ExtendedSocketOptions.TCP_KEEPCOUNT, ExtendedSocketOptions.SO_INCOMING_NAPI_ID }) {
+				if(socket.supportedOptions().contains(option)) {
+					System.out.println("\t\t "+option.name()+": "+socket.getOption(option));
+				}
+			}
 			System.out.println("\t </Socket-configuration>");
 		} 
-		catch (SocketException exception) {
+		catch (IOException exception) {
 			System.out.println("\t ERROR while reading socket configuration");
 			exception.printStackTrace();
 		}
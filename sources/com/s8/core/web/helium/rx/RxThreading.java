@@ -0,0 +1,38 @@
+package com.s8.core.web.helium.rx;
+
+
+/**
+ * <p>
+ * How the loops of reactors are run (see <code>RxReactor.start</code>).
+ * </p>
+ *
+ * @author pierreconvert
+ *
+ */
+public enum RxThreading {
+
+
+	/**
+	 * Each loop is a watch task of the <code>SiliconEngine</code>, re-pushed once
+	 * done (<code>SelectKeysTask</code>): reactors share the watch threads with
+	 * other watch tasks.
+	 */
+	SILICON_TASKS,
+
+
+	/**
+	 * Each reactor loops on its own (daemon) platform thread, never handing it
+	 * back. Lowest latency, at the cost of one thread per reactor.
+	 */
+	DEDICATED_THREADS;
+
+
+	/**
+	 *
+	 * @param name (case insensitive, '-' accepted in place of '_')
+	 * @return
+	 */
+	public static RxThreading parse(String name) {
+		return valueOf(name.trim().toUpperCase().replace('-', '_'));
+	}
+}
@@ -0,0 +1,47 @@
+package com.s8.core.web.helium.rx;
+
+
+/**
+ * <p>
+ * Deadlines a connection can be subject to. Each one is armed and cancelled by
+ * the layer in charge (Rx, SSL, HTTP), and closes the connection when expired
+ * (except <code>BUFFER_RELEASE</code>).
+ * </p>
+ *
+ * @author pierreconvert
+ *
+ */
+public enum RxTimeout {
+
+
+	/**
+	 * No I/O activity on the connection
+	 */
+	IDLE,
+
+
+	/**
+	 * (TLS) handshake not completed
+	 */
+	HANDSHAKE,
+
+
+	/**
+	 * Request (HTTP/1.1) or connection preface (HTTP/2) not fully received
+	 */
+	HEADER,
+
+
+	/**
+	 * (Client) Outbound connection not established
+	 */
+	CONNECT,
+
+
+	/**
+	 * No I/O activity for a while: buffers are given back to the pool, the
+	 * connection is kept open (buffers are reacquired on next readiness)
+	 */
+	BUFFER_RELEASE;
+
+}
@@ -0,0 +1,77 @@
+package com.s8.core.web.helium.rx;
+
+
+/**
+ * <p>
+ * Node of a <code>RxTimingWheel</code>. Intrusive: the links are held by the
+ * timer itself, so that arming and cancelling never allocate. A timer is
+ * typically created once per owner (e.g. connection) and re-scheduled as
+ * often as needed.
+ * </p>
+ * <p>
+ * /!\ REACTOR OPERATED (the reactor owning the wheel).
+ * </p>
+ *
+ * @author pierreconvert
+ *
+ */
+public abstract class RxTimer {
+
+
+	/**
+	 * absolute deadline (see <code>RxTimingWheel.now()</code>), 0 if not armed
+	 */
+	long deadline;
+
+
+	/**
+	 * index of the bucket this timer is linked in, -1 if not scheduled
+	 */
+	int bucket = -1;
+
+
+	RxTimer previous;
+
+	RxTimer next;
+
+
+	/**
+	 * link in the list of timers being expired
+	 */
+	RxTimer nextExpired;
+
+
+	public RxTimer() {
+		super();
+	}
+
+
+	/**
+	 *
+	 * @return true if currently scheduled in a wheel
+	 */
+	public boolean isScheduled() {
+		return bucket >= 0;
+	}
+
+
+	/**
+	 *
+	 * @return the deadline (0 if not armed)
+	 */
+	public long getDeadline() {
+		return deadline;
+	}
+
+
+	/**
+	 * /!\ REACTOR OPERATED
+	 *
+	 * Called once the deadline has passed. The timer is no longer scheduled, and
+	 * can be re-scheduled from within this method.
+	 *
+	 * @param now
+	 */
+	protected abstract void onExpired(long now);
+
+}
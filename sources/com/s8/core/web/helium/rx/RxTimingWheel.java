@@ -0,0 +1,198 @@
+package com.s8.core.web.helium.rx;
+
+
+/**
+ * <p>
+ * Hashed timing wheel: timers are hashed by deadline tick into a fixed ring of
+ * buckets (doubly-linked lists of intrusive <code>RxTimer</code> nodes), so
+ * that scheduling, re-scheduling and cancelling are O(1) and allocation-free.
+ * Deadlines further than one revolution simply stay in their bucket until
+ * their round comes.
+ * </p>
+ * <p>
+ * Timers never fire early, and fire at most one tick late (plus the time the
+ * reactor takes to come back from its I/O processing).
+ * </p>
+ * <p>
+ * /!\ NOT thread safe: REACTOR OPERATED only.
+ * </p>
+ *
+ * @author pierreconvert
+ *
+ */
+public class RxTimingWheel {
+
+
+	public final static int DEFAULT_NUMBER_OF_BUCKETS = 512;
+
+
+	/**
+	 * Monotonic clock used for all deadlines
+	 *
+	 * @return the current time (in milliseconds)
+	 */
+	public static long now() {
+		return System.nanoTime() / 1000000L;
+	}
+
+
+	/**
+	 * tick duration (ms)
+	 */
+	public final long tick;
+
+
+	/**
+	 * head of each bucket (null if empty)
+	 */
+	private final RxTimer[] buckets;
+
+	private final int mask;
+
+
+	/**
+	 * next tick to be processed
+	 */
+	private long current;
+
+
+	private int size = 0;
+
+
+	/**
+	 *
+	 * @param tick resolution (ms)
+	 * @param nBuckets (rounded up to a power of two)
+	 */
+	public RxTimingWheel(long tick, int nBuckets) {
+		super();
+		this.tick = Math.max(1, tick);
+		int length = Integer.highestOneBit(Math.max(1, nBuckets - 1)) << 1;
+		buckets = new RxTimer[length];
+		mask = length - 1;
+		current = now() / this.tick;
+	}
+
+
+	/**
+	 *
+	 * @return number of scheduled timers
+	 */
+	public int size() {
+		return size;
+	}
+
+
+	/**
+	 * Schedule (or re-schedule) timer.
+	 *
+	 * @param timer
+	 * @param deadline absolute deadline, as given by <code>now()</code>
+	 */
+	public void schedule(RxTimer timer, long deadline) {
+		if(timer.bucket >= 0) { unlink(timer); }
+
+		timer.deadline = deadline;
+
+		/* never early: due at the first tick not before deadline */
+		long t = (deadline + tick - 1) / tick;
+		if(t < current) { t = current; }
+
+		int index = (int) (t & mask);
+		RxTimer head = buckets[index];
+		timer.previous = null;
+		timer.next = head;
+		if(head != null) { head.previous = timer; }
+		buckets[index] = timer;
+		timer.bucket = index;
+		size++;
+	}
+
+
+	/**
+	 * Cancel timer (no-op if not scheduled)
+	 *
+	 * @param timer
+	 */
+	public void cancel(RxTimer timer) {
+		if(timer.bucket >= 0) { unlink(timer); }
+		timer.deadline = 0;
+	}
+
+
+	private void unlink(RxTimer timer) {
+		if(timer.previous != null) {
+			timer.previous.next = timer.next;
+		}
+		else {
+			buckets[timer.bucket] = timer.next;
+		}
+		if(timer.next != null) { timer.next.previous = timer.previous; }
+		timer.previous = null;
+		timer.next = null;
+		timer.bucket = -1;
+		size--;
+	}
+
+
+	/**
+	 * Expire all timers whose deadline has passed
+	 *
+	 * @param now
+	 */
+	public void advance(long now) {
+		long last = now / tick;
+		if(size == 0) {
+			current = last + 1;
+			return;
+		}
+
+		/* collect first, fire after, so that callbacks can freely (re-)schedule */
+		RxTimer expired = null;
+
+		/* one revolution at most: a bucket scan catches every due timer in it */
+		long end = Math.min(last, current + mask);
+		for(long t = current; t <= end; t++) {
+			RxTimer timer = buckets[(int) (t & mask)];
+			while(timer != null) {
+				RxTimer next = timer.next;
+				if(timer.deadline <= now) {
+					unlink(timer);
+					timer.nextExpired = expired;
+					expired = timer;
+				}
+				timer = next;
+			}
+		}
+		current = last + 1;
+
+		while(expired != null) {
+			RxTimer timer = expired;
+			expired = timer.nextExpired;
+			timer.nextExpired = null;
+
+			/* skip if cancelled or re-scheduled by a previous callback */
+			if(timer.bucket < 0 && timer.deadline != 0 && timer.deadline <= now) {
+				timer.deadline = 0;
+				timer.onExpired(now);
+			}
+		}
+	}
+
+
+	/**
+	 *
+	 * @param now
+	 * @return the time (ms, at least 1) until the next non-empty bucket, 0 if no
+	 *         timer is scheduled
+	 */
+	public long getTimeout(long now) {
+		if(size == 0) { return 0; }
+		for(long t = current; t <= current + mask; t++) {
+			if(buckets[(int) (t & mask)] != null) {
+				return Math.max(1, t * tick - now);
+			}
+		}
+		return Math.max(1, tick);
+	}
+}
@@ -0,0 +1,275 @@
+package com.s8.core.web.helium.rx;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.s8.core.web.helium.rx.RxConnection.State;
+
+
+/**
+ * <p>
+ * Drives one connection over a <b>blocking</b> channel with two virtual
+ * threads (see <code>RxBackend.VIRTUAL_THREADS</code>):
+ * </p>
+ * <ul>
+ * <li>the reader blocks on the channel while <code>Need.RECEIVE</code> is
+ * raised, then delivers the bytes to <code>RxInbound</code>,</li>
+ * <li>the writer waits for <code>Need.SEND</code>, pulls bytes from
+ * <code>RxOutbound</code>, and blocks on the channel until written. It is also
+ * in charge of closing.</li>
+ * </ul>
+ * <p>
+ * Callbacks (<code>rx_onReceived</code>, <code>rx_onPreSending</code>,
+ * <code>rx_onPostSending</code>, ...) are run under a per-connection lock, so
+ * that, as with a reactor, they never run concurrently for a given connection.
+ * Blocking I/O is always performed OUTSIDE this lock, on staging buffers, so
+ * that a writer stuck on a slow peer never prevents the reader from going on
+ * (and conversely).
+ * </p>
+ * <p>
+ * Deadlines (<code>RxTimeout</code>) and <code>RxMetrics</code> are not
+ * collected by this backend.
+ * </p>
+ *
+ * @author pierreconvert
+ *
+ */
+class RxVirtualDriver {
+
+
+	private final RxConnection connection;
+
+	private final SocketChannel socketChannel;
+
+	private final RxInbound inbound;
+
+	private final RxOutbound outbound;
+
+
+	/**
+	 * held while running callbacks
+	 */
+	private final ReentrantLock lock = new ReentrantLock();
+
+
+	/**
+	 * bytes read, not delivered yet (READER OPERATED, left in WRITE mode)
+	 */
+	private ByteBuffer readStaging;
+
+
+	/**
+	 * bytes to be written (WRITER OPERATED, left in WRITE mode)
+	 */
+	private ByteBuffer writeStaging;
+
+
+	private final RxBufferPool bufferPool;
+
+
+	private volatile Thread reader;
+
+	private volatile Thread writer;
+
+
+	/**
+	 * number of threads still running
+	 */
+	private final AtomicInteger nRunning = new AtomicInteger(2);
+
+
+	/**
+	 * run once both threads are done
+	 */
+	private final Runnable onTerminated;
+
+
+	/**
+	 *
+	 * @param connection (initialized)
+	 * @param configuration
+	 * @param onTerminated
+	 */
+	RxVirtualDriver(RxConnection connection, RxWebConfiguration configuration, Runnable onTerminated) {
+		super();
+		this.connection = connection;
+		this.socketChannel = connection.getSocketChannel();
+		this.inbound = connection.getInbound();
+		this.outbound = connection.getOutbound();
+		this.bufferPool = configuration.getBufferPool();
+		this.onTerminated = onTerminated;
+
+		readStaging = bufferPool.borrow(inbound.networkBuffer.capacity());
+		writeStaging = bufferPool.borrow(outbound.networkBuffer.capacity());
+	}
+
+
+	/**
+	 * Run reader on the current (virtual) thread, writer on a new one.
+	 */
+	void run() {
+		reader = Thread.currentThread();
+
+		/* need changes now wake up threads (set before starting writer: no lost wake-up) */
+		connection.driver = this;
+
+		writer = Thread.ofVirtual().name(reader.getName()+".writer").start(this::write);
+		read();
+	}
+
+
+	/**
+	 * Thread safe. Need word or state has changed: let both threads re-check.
+	 */
+	void onNeedChanged() {
+		LockSupport.unpark(reader);
+		LockSupport.unpark(writer);
+	}
+
+
+	private boolean isRunning() {
+		State state = connection.state;
+		return (state == State.CONNECTED || state == State.NOT_INITIATED) && socketChannel.isOpen();
+	}
+
+
+	/**
+	 * Reader loop
+	 */
+	private void read() {
+		try {
+			while(isRunning()) {
+
+				if(!connection.hasNeed(Need.RECEIVE)) {
+					LockSupport.park(this);
+					continue;
+				}
+
+				/* read only if everything previously read has been delivered */
+				if(readStaging.position() == 0 && socketChannel.read(readStaging) == -1) {
+					lock.lock();
+					try {
+						if(isRunning()) { inbound.rx_onRemotelyClosed(); }
+					}
+					finally {
+						lock.unlock();
+					}
+					break;
+				}
+
+				boolean isDelivered;
+				lock.lock();
+				try {
+					if(!isRunning()) { break; }
+					isDelivered = inbound.deliver(readStaging);
+				}
+				finally {
+					lock.unlock();
+				}
+
+				/* upper layer cannot take more for now: wait for a need change */
+				if(!isDelivered) { LockSupport.park(this); }
+			}
+		}
+		catch (IOException exception) {
+			lock.lock();
+			try {
+				/* closing the channel unblocks the reader: nothing to report then */
+				if(isRunning()) { inbound.rx_onReceptionFailed(exception); }
+			}
+			catch (IOException e) {
+				e.printStackTrace();
+			}
+			finally {
+				lock.unlock();
+			}
+		}
+		finally {
+			/* whatever happened, no more reading: close */
+			if(connection.state != State.CLOSED) { connection.rx_initiateClosing(); }
+			terminate();
+		}
+	}
+
+
+	/**
+	 * Writer loop
+	 */
+	private void write() {
+		try {
+			while(isRunning()) {
+
+				/* shut down requested and nothing left to send: close */
+				if(connection.hasNeed(Need.SHUT_DOWN) && !connection.hasNeed(Need.SEND)) {
+					break;
+				}
+
+				if(!connection.hasNeed(Need.SEND)) {
+					LockSupport.park(this);
+					continue;
+				}
+
+				int nBytes;
+				lock.lock();
+				try {
+					if(!isRunning()) { break; }
+					nBytes = outbound.stage(writeStaging);
+				}
+				finally {
+					lock.unlock();
+				}
+
+				/* blocking write, outside lock */
+				writeStaging.flip();
+				while(writeStaging.hasRemaining()) { socketChannel.write(writeStaging); }
+				writeStaging.clear();
+
+				lock.lock();
+				try {
+					if(!isRunning()) { break; }
+					outbound.onStagedWritten(nBytes);
+				}
+				finally {
+					lock.unlock();
+				}
+			}
+		}
+		catch (IOException exception) {
+			lock.lock();
+			try {
+				if(isRunning()) { outbound.rx_onFailed(exception); }
+			}
+			finally {
+				lock.unlock();
+			}
+		}
+		finally {
+			lock.lock();
+			try {
+				connection.handleClosing();
+			}
+			finally {
+				lock.unlock();
+			}
+
+			/* reader might be parked */
+			LockSupport.unpark(reader);
+			terminate();
+		}
+	}
+
+
+	private void terminate() {
+		if(nRunning.decrementAndGet() == 0) {
+			bufferPool.release(readStaging);
+			readStaging = null;
+			bufferPool.release(writeStaging);
+			writeStaging = null;
+			onTerminated.run();
+		}
+	}
+}
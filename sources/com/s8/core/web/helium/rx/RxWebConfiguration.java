@@ -15,6 +15,18 @@ public class RxWebConfiguration {
 	 * parameter altogther.
 	 */
 	public int backlog = 50;
+
+
+
+	/**
+	 * Maximum number of connections accepted per OP_ACCEPT readiness, before
+	 * going back to the selector loop.
+	 * 
+	 * <p>
+	 * <b>active for server-side</b>
+	 * </p>
+	 */
+	public int acceptBatchSize = 64;
 	
 
 	/**
@@ -32,6 +44,15 @@ public class RxWebConfiguration {
 	public String hostname = "localhost";
 	
 	
+	/**
+	 * If set, the server listens on (the client connects to) the Unix domain
+	 * socket at this path instead of <code>host</code>:<code>port</code>.
+	 * Same-host peers only (e.g. a sidecar proxy), but the TCP/IP stack is
+	 * skipped entirely. <code>null</code> to use TCP.
+	 */
+	public String unixSocketPath = null;
+
+
 	/**
 	 * socket level settings
 	 */
@@ -42,11 +63,187 @@ public class RxWebConfiguration {
 
 	
 	public int poolCapacity = 1024;
+
+
+	/**
+	 * Number of reactors (selector loops) serving the connections. With more than
+	 * one reactor, a dedicated acceptor is added.
+	 * 
+	 * <p>
+	 * <b>active for server-side</b>
+	 * </p>
+	 */
+	public int reactors = 1;
+
+
+	/**
+	 * How accepted connections are spread across reactors
+	 * (<code>round-robin</code>, <code>least-connections</code>,
+	 * <code>napi-id</code>)
+	 */
+	public RxBalancing balancing = RxBalancing.ROUND_ROBIN;
+
+
+	/**
+	 * How reactor loops are run: as <code>SiliconEngine</code> watch tasks
+	 * (<code>SILICON_TASKS</code>, default) or each on a dedicated thread
+	 * (<code>DEDICATED_THREADS</code>).
+	 */
+	public RxThreading threading = RxThreading.SILICON_TASKS;
+
+
+	/**
+	 * Before blocking in <code>select</code>, reactors spin on
+	 * <code>selectNow</code> for up to this long (in microseconds), trading CPU
+	 * for wakeup latency. Mostly relevant with <code>DEDICATED_THREADS</code>. 0
+	 * to disable.
+	 */
+	public long busyPollTime = 0;
+
+
+	/**
+	 * If true (and supported by the platform), each reactor opens its own
+	 * listener on <code>port</code> with <code>SO_REUSEPORT</code>: the kernel
+	 * spreads incoming connections over the reactors, and accepting is no longer
+	 * serialized on a single thread. <code>balancing</code> is then ignored.
+	 * 
+	 * <p>
+	 * <b>active for server-side</b>
+	 * </p>
+	 */
+	public boolean isReusePort = false;
+
+
+	/**
+	 * Network and application buffers are borrowed from the JVM-wide pool of
+	 * direct buffers (<code>RxBufferPool.DIRECT</code>) if true, allocated on the
+	 * heap otherwise.
+	 */
+	public boolean isBufferPooling = true;
+
+
+	/**
+	 * How connections are driven: by selector loops (<code>REACTOR</code>,
+	 * default) or by virtual threads over blocking channels
+	 * (<code>VIRTUAL_THREADS</code>, requires JDK 21).
+	 */
+	public RxBackend backend = RxBackend.REACTOR;
+
+
+	/**
+	 * Connections with no I/O activity for this long (in milliseconds) are closed.
+	 * 0 to disable.
+	 */
+	public long idleTimeout = 300000;
+
+
+	/**
+	 * Connections not done with their (TLS) handshake after this long (in
+	 * milliseconds) are closed. 0 to disable.
+	 */
+	public long handshakeTimeout = 10000;
+
+
+	/**
+	 * Connections not done with sending a request header (or the HTTP/2
+	 * preface) after this long (in milliseconds) are closed. 0 to disable.
+	 */
+	public long headerTimeout = 10000;
+
+
+	/**
+	 * (Client) Outbound connections not established after this long (in
+	 * milliseconds) are closed. 0 to disable.
+	 */
+	public long connectTimeout = 10000;
+
+
+	/**
+	 * (Client) Maximum number of simultaneous outbound connections to a same
+	 * target (host and port) of a <code>RxMultiClient</code>.
+	 */
+	public int maxConnectionsPerTarget = 16;
+
+
+	/**
+	 * A connection with more than this many bytes queued for sending (not yet
+	 * handed to the network buffer) becomes unwritable (see
+	 * <code>RxOutbound.isWritable()</code>). 0 to disable.
+	 */
+	public long outboundHighWatermark = 1 << 20;
+
+
+	/**
+	 * An unwritable connection becomes writable again once its queued bytes get
+	 * back to this level.
+	 */
+	public long outboundLowWatermark = 1 << 18;
+
+
+	/**
+	 * Resolution (in milliseconds) of the reactors' timing wheels
+	 */
+	public long timerResolution = 100;
+
+
+	/**
+	 * Maximum number of bytes read from a connection in one reactor loop. A
+	 * connection with more to read is resumed in the next loop. 0 for no limit.
+	 */
+	public int readBudget = 1 << 18;
+
+
+	/**
+	 * Maximum number of bytes written to a connection in one reactor loop. 0 for
+	 * no limit.
+	 */
+	public int writeBudget = 1 << 18;
+
+
+	/**
+	 * Maximum number of received frames (HTTP/2) processed for a connection in
+	 * one reactor loop. 0 for no limit.
+	 */
+	public int frameBudget = 64;
+
+
+	/**
+	 * If true, a thread requesting a send on a connection whose outbound is idle
+	 * writes straight to the channel (instead of waking up the reactor), falling
+	 * back to the reactor only if the write is partial. Saves a wakeup and a loop
+	 * of latency for small responses.
+	 */
+	public boolean isDirectWrite = false;
+
+
+	/**
+	 * Connections with no I/O activity for this long (in milliseconds) give
+	 * their network and application buffers back to the pool, and reacquire them
+	 * on next readiness. 0 to disable.
+	 */
+	public long bufferReleaseTimeout = 5000;
+
+
+	/**
+	 * Inbound network buffers grow (doubling) while reads keep filling them, up
+	 * to this capacity (in bytes), and shrink back to their initial capacity
+	 * after sustained small reads.
+	 */
+	public int maxReceiveBufferCapacity = 1 << 17;
 	
 	
 	public RxWebConfiguration() {
 		super();
 	}
+
+
+	/**
+	 * 
+	 * @return the pool providing network and application buffers
+	 */
+	public RxBufferPool getBufferPool() {
+		return isBufferPooling ? RxBufferPool.DIRECT : RxBufferPool.HEAP;
+	}
 	
 
 	@XML_SetElement(tag="isServer")
@@ -61,6 +258,12 @@ public class RxWebConfiguration {
 	}
 	
 
+	@XML_SetElement(tag="accept-batch-size")
+	public void setAcceptBatchSize(int size) {
+		this.acceptBatchSize = size;
+	}
+	
+
 	@XML_SetElement(tag="port")
 	public void setPort(int port) {
 		this.port = port;
@@ -72,6 +275,11 @@ public class RxWebConfiguration {
 		this.hostname = hostname;
 	}
 
+	@XML_SetElement(tag="unix-socket-path")
+	public void setUnixSocketPath(String path) {
+		this.unixSocketPath = path;
+	}
+
 	@XML_SetElement(tag="socket")
 	public void setSocketConfiguration(RxSocketConfiguration configuration) {
 		this.socketConfiguration = configuration;
@@ -88,6 +296,132 @@ public class RxWebConfiguration {
 	public void setPoolCapacity(int capacity) {
 		this.poolCapacity = capacity;
 	}
+
+
+	@XML_SetElement(tag="reactors")
+	public void setReactors(int nReactors) {
+		this.reactors = nReactors;
+	}
+
+
+	@XML_SetElement(tag="reactor-balancing")
+	public void setBalancing(String balancing) {
+		this.balancing = RxBalancing.parse(balancing);
+	}
+
+
+	@XML_SetElement(tag="reactor-threading")
+	public void setThreading(String threading) {
+		this.threading = RxThreading.parse(threading);
+	}
+
+
+	@XML_SetElement(tag="busy-poll-time")
+	public void setBusyPollTime(long time) {
+		this.busyPollTime = time;
+	}
+
+
+	@XML_SetElement(tag="reuse-port")
+	public void setReusePort(boolean isReusePort) {
+		this.isReusePort = isReusePort;
+	}
+
+
+	@XML_SetElement(tag="backend")
+	public void setBackend(String name) {
+		this.backend = RxBackend.parse(name);
+	}
+
+
+	@XML_SetElement(tag="buffer-pooling")
+	public void setBufferPooling(boolean isBufferPooling) {
+		this.isBufferPooling = isBufferPooling;
+	}
+
+
+	@XML_SetElement(tag="idle-timeout")
+	public void setIdleTimeout(long timeout) {
+		this.idleTimeout = timeout;
+	}
+
+
+	@XML_SetElement(tag="handshake-timeout")
+	public void setHandshakeTimeout(long timeout) {
+		this.handshakeTimeout = timeout;
+	}
+
+
+	@XML_SetElement(tag="header-timeout")
+	public void setHeaderTimeout(long timeout) {
+		this.headerTimeout = timeout;
+	}
+
+
+	@XML_SetElement(tag="connect-timeout")
+	public void setConnectTimeout(long timeout) {
+		this.connectTimeout = timeout;
+	}
+
+
+	@XML_SetElement(tag="max-connections-per-target")
+	public void setMaxConnectionsPerTarget(int n) {
+		this.maxConnectionsPerTarget = n;
+	}
+
+
+	@XML_SetElement(tag="outbound-high-watermark")
+	public void setOutboundHighWatermark(long n) {
+		this.outboundHighWatermark = n;
+	}
+
+
+	@XML_SetElement(tag="outbound-low-watermark")
+	public void setOutboundLowWatermark(long n) {
+		this.outboundLowWatermark = n;
+	}
+
+
+	@XML_SetElement(tag="read-budget")
+	public void setReadBudget(int budget) {
+		this.readBudget = budget;
+	}
+
+
+	@XML_SetElement(tag="write-budget")
+	public void setWriteBudget(int budget) {
+		this.writeBudget = budget;
+	}
+
+
+	@XML_SetElement(tag="frame-budget")
+	public void setFrameBudget(int budget) {
+		this.frameBudget = budget;
+	}
+
+
+	@XML_SetElement(tag="direct-write")
+	public void setDirectWrite(boolean isDirectWrite) {
+		this.isDirectWrite = isDirectWrite;
+	}
+
+
+	@XML_SetElement(tag="buffer-release-timeout")
+	public void setBufferReleaseTimeout(long timeout) {
+		this.bufferReleaseTimeout = timeout;
+	}
+
+
+	@XML_SetElement(tag="max-receive-buffer-capacity")
+	public void setMaxReceiveBufferCapacity(int capacity) {
+		this.maxReceiveBufferCapacity = capacity;
+	}
+
+
+	@XML_SetElement(tag="timer-resolution")
+	public void setTimerResolution(long resolution) {
+		this.timerResolution = resolution;
+	}
 	
 
 }
@@ -0,0 +1,24 @@
+package com.s8.core.web.helium.rx;
+
+
+/**
+ * Notified when the outbound data queued on a connection crosses its
+ * watermarks (see <code>RxOutbound</code>).
+ * 
+ * @author pierreconvert
+ *
+ */
+public interface RxWritabilityListener {
+
+
+	/**
+	 * Called in order, outside of any outbound lock, on a thread that has caused
+	 * a crossing (producer thread when going above the high watermark, endpoint
+	 * thread when going back below the low watermark). MUST NOT block.
+	 * 
+	 * @param isWritable false when the high watermark has been crossed, true when
+	 *                   back to the low watermark
+	 */
+	public abstract void onWritabilityChanged(boolean isWritable);
+
+}
@@ -14,22 +14,23 @@ public class SelectKeysTask implements WatchSiTask {
 	/**
 	 * 
 	 */
-	private final RxServer server;
+	private final RxReactor reactor;
 	
-	public SelectKeysTask(RxServer server) {
-		this.server = server;
+	public SelectKeysTask(RxReactor reactor) {
+		this.reactor = reactor;
 	}
 	
 	@Override
 	public WatchSiTask run() {
 
-		server.serve();
+		reactor.serve();
 
 		
 		/*
-		 * WHATEVER happened, we push a new SelectKeys task to re-iterate
+		 * WHATEVER happened, we push this task again to re-iterate (stateless: no
+		 * need to allocate a new one on every loop), unless the reactor is stopped
 		 */
-		return new SelectKeysTask(server);
+		return reactor.isRunning() ? this : null;
 	}
 
 	
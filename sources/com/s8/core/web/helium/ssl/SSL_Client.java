@@ -7,6 +7,7 @@ import java.security.KeyStoreException;
 import java.security.NoSuchAlgorithmException;
 import java.security.UnrecoverableKeyException;
 import java.security.cert.CertificateException;
+import java.util.concurrent.Executor;
 
 import javax.net.ssl.SSLContext;
 
@@ -16,6 +17,10 @@ public abstract class SSL_Client extends RxClient implements SSL_Endpoint {
 	
 	private SSLContext SSL_context;
 
+	private Executor SSL_taskExecutor;
+
+	private final SSL_HandshakeMetrics SSL_handshakeMetrics = new SSL_HandshakeMetrics();
+
 	public SSL_Client() throws 
 			KeyManagementException, 
 			UnrecoverableKeyException, 
@@ -44,6 +49,33 @@ public abstract class SSL_Client extends RxClient implements SSL_Endpoint {
 		// start lower level
 				SSL_WebConfiguration configuration = getWebConfiguration();
 				SSL_context = SSL_Module.createContext(configuration);
+
+				if(SSL_taskExecutor == null) {
+					SSL_taskExecutor = SSL_Module.createTaskExecutor(configuration);
+				}
+	}
+
+
+	/**
+	 * Run delegated tasks on <code>executor</code> (MUST be called before
+	 * <code>start()</code>)
+	 * 
+	 * @param executor
+	 */
+	public void ssl_setTaskExecutor(Executor executor) {
+		this.SSL_taskExecutor = executor;
+	}
+
+
+	@Override
+	public Executor ssl_getTaskExecutor() {
+		return SSL_taskExecutor;
+	}
+
+
+	@Override
+	public SSL_HandshakeMetrics ssl_getHandshakeMetrics() {
+		return SSL_handshakeMetrics;
 	}
 	
 	@Override
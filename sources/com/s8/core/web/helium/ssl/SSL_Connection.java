@@ -3,6 +3,9 @@ package com.s8.core.web.helium.ssl;
 import java.io.IOException;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.SocketChannel;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import javax.net.ssl.SSLContext;
 import javax.net.ssl.SSLEngine;
@@ -10,6 +13,7 @@ import javax.net.ssl.SSLEngineResult;
 import javax.net.ssl.SSLParameters;
 
 import com.s8.core.web.helium.rx.RxConnection;
+import com.s8.core.web.helium.rx.RxTimeout;
 
 
 /**
@@ -29,11 +33,18 @@ public abstract class SSL_Connection extends RxConnection {
 
 	private boolean isServerSide;
 
-	private SSL_Phase phase;
+	private volatile SSL_Phase phase;
 
 	private SSLEngine engine;
 
 
+	/**
+	 * time (ms) the current handshake started: a session created before is a
+	 * resumed one
+	 */
+	private long handshakeStartTime;
+
+
 	/**
 	 * SSL layer verbosity
 	 */
@@ -41,6 +52,13 @@ public abstract class SSL_Connection extends RxConnection {
 
 
 	public boolean isClosed;
+
+
+	/**
+	 * true while delegated tasks are running on the endpoint task executor:
+	 * wrapping and unwrapping are paused meanwhile
+	 */
+	private final AtomicBoolean isRunningDelegatedTasks = new AtomicBoolean(false);
 	
 
 
@@ -83,6 +101,9 @@ public abstract class SSL_Connection extends RxConnection {
 		phase = SSL_Phase.CREATION;
 		isClosed = false;
 
+		/* handshake MUST complete in time (scheduled upon registration) */
+		armTimeout(RxTimeout.HANDSHAKE);
+
 		// engine
 		initializeSSLEngine();
 		
@@ -154,7 +175,15 @@ public abstract class SSL_Connection extends RxConnection {
 		int maxPacketSize = config.ssl_maxPacketSize;
 		boolean isServerSide = config.isServer;
 		
-		engine = context.createSSLEngine();
+		handshakeStartTime = System.currentTimeMillis();
+
+		if(isServerSide) {
+			engine = context.createSSLEngine();
+		}
+		else {
+			/* peer host and port: key of the client session cache (no resumption otherwise) */
+			engine = context.createSSLEngine(config.hostname, config.port);
+		}
 
 		if(isServerSide) {
 			/*
@@ -178,11 +207,15 @@ public abstract class SSL_Connection extends RxConnection {
 		parameters.setMaximumPacketSize(maxPacketSize);
 		parameters.setApplicationProtocols(new String[]{"h2", "http/1.1"});
 
+		/* protocol versions, cipher suites and key exchange groups (by preference) */
+		SSL_Module.setupParameters(parameters, config);
+
 		if(config.SSL_isVerbose) {
 			System.out.println("[SSL_Connection] ALPN:");
 			for(String p : parameters.getApplicationProtocols()) {
 				System.out.println("\t\t-> supported application protocol: "+p);
 			}	
+			System.out.println("[SSL_Connection] protocols: "+String.join(", ", parameters.getProtocols()));
 		}
 		
 		engine.setSSLParameters(parameters);
@@ -193,8 +226,124 @@ public abstract class SSL_Connection extends RxConnection {
 	}
 
 
+	/**
+	 * /!\ ENDPOINT OPERATED, for thread safety reasons
+	 * 
+	 * @param result
+	 */
 	public void onResult(SSLEngineResult result) {
+		SSL_Phase previous = phase;
 		phase = phase.transition(result);
+
+		if(phase != previous) {
+			switch(phase) {
+
+			/* handshake done: stop counting */
+			case APPLICATION_DATA: 
+				cancelTimeout(RxTimeout.HANDSHAKE);
+				getEndpoint().ssl_getHandshakeMetrics().onCompleted(
+						engine.getSession().getCreationTime() < handshakeStartTime);
+				break;
+
+			/* renegotiation: counting again */
+			case REHANDSHAKING: 
+				handshakeStartTime = System.currentTimeMillis();
+				armTimeout(RxTimeout.HANDSHAKE); 
+				break;
+
+			default: break;
+			}
+		}
+	}
+
+
+	/**
+	 * /!\ ENDPOINT OPERATED
+	 * 
+	 * <p>
+	 * Run the delegated tasks of the engine. If the endpoint has a task executor
+	 * (and the connection is driven by a reactor), tasks are handed over to it:
+	 * the reactor goes on serving other connections, while this one pauses
+	 * wrapping and unwrapping until tasks are completed. Both sides are then
+	 * resumed by the reactor.
+	 * </p>
+	 * <p>
+	 * Otherwise, tasks are run inline (blocking the calling thread).
+	 * </p>
+	 * 
+	 * @return true if tasks have been run (inline), false if they are running on
+	 *         the executor (caller MUST stop wrapping/unwrapping)
+	 */
+	boolean ssl_runDelegatedTasks() {
+		Executor executor = getEndpoint().ssl_getTaskExecutor();
+		if(executor == null || !isReactorDriven()) {
+			runDelegatedTasks();
+			return true;
+		}
+
+		/* already running (triggered by the other side) */
+		if(!isRunningDelegatedTasks.compareAndSet(false, true)) { return false; }
+
+		try {
+			executor.execute(() -> {
+				try {
+					runDelegatedTasks();
+				}
+				finally {
+					isRunningDelegatedTasks.set(false);
+					post(this::ssl_onDelegatedTasksCompleted);
+				}
+			});
+		}
+		catch (RejectedExecutionException exception) {
+			/* executor shut down or saturated: fall back to inline */
+			runDelegatedTasks();
+			isRunningDelegatedTasks.set(false);
+			return true;
+		}
+		return false;
+	}
+
+
+	private void runDelegatedTasks() {
+		Runnable runnable;
+		while((runnable = engine.getDelegatedTask()) != null) {
+			runnable.run();
+		}
+	}
+
+
+	/**
+	 * /!\ REACTOR OPERATED
+	 * 
+	 * Engine is ready to go on: resume both sides (whichever is needed will
+	 * proceed, the other one stops right away)
+	 */
+	private void ssl_onDelegatedTasksCompleted() {
+		if(isVerbose) {
+			System.out.println("[SSL_Connection] "+name+" delegated tasks completed, resuming");
+		}
+		getInbound().ssl_launchUnwrap();
+		getOutbound().ssl_launchWrap();
+	}
+
+
+	/**
+	 * Thread safe
+	 * 
+	 * @return true while delegated tasks are running on the endpoint executor
+	 */
+	public boolean isRunningDelegatedTasks() {
+		return isRunningDelegatedTasks.get();
+	}
+
+
+	/**
+	 * 
+	 * @return true if handshake is done and application data is flowing
+	 */
+	public boolean isApplicationData() {
+		return phase == SSL_Phase.APPLICATION_DATA;
 	}
 
 
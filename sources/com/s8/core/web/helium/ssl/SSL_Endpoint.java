@@ -1,5 +1,7 @@
 package com.s8.core.web.helium.ssl;
 
+import java.util.concurrent.Executor;
+
 import javax.net.ssl.SSLContext;
 
 import com.s8.core.web.helium.rx.RxEndpoint;
@@ -13,4 +15,20 @@ public interface SSL_Endpoint extends RxEndpoint {
 	
 	public SSLContext ssl_getContext();
 
+
+	/**
+	 * 
+	 * @return the executor running <code>SSLEngine</code> delegated tasks (key
+	 *         exchange, certificate validation...) off the reactors,
+	 *         <code>null</code> to run them inline
+	 */
+	public Executor ssl_getTaskExecutor();
+
+
+	/**
+	 * 
+	 * @return the handshake counters of this endpoint (full vs. resumed)
+	 */
+	public SSL_HandshakeMetrics ssl_getHandshakeMetrics();
+
 }
@@ -0,0 +1,75 @@
+package com.s8.core.web.helium.ssl;
+
+import java.util.concurrent.atomic.LongAdder;
+
+
+/**
+ * <p>
+ * Handshake counters of an SSL endpoint: full handshakes versus abbreviated
+ * ones (session resumed, from the session cache or a stateless ticket).
+ * </p>
+ * <p>
+ * Resumption is told apart by the session creation time: a resumed session
+ * was created before the handshake started (JSSE exposes no direct flag).
+ * Connections of all reactors record concurrently, hence
+ * <code>LongAdder</code>s.
+ * </p>
+ *
+ * @author pierreconvert
+ *
+ */
+public class SSL_HandshakeMetrics {
+
+
+	private final LongAdder nFullHandshakes = new LongAdder();
+
+	private final LongAdder nAbbreviatedHandshakes = new LongAdder();
+
+
+	public SSL_HandshakeMetrics() {
+		super();
+	}
+
+
+	/**
+	 * Thread safe
+	 * 
+	 * @param isResumed
+	 */
+	void onCompleted(boolean isResumed) {
+		if(isResumed) {
+			nAbbreviatedHandshakes.increment();
+		}
+		else {
+			nFullHandshakes.increment();
+		}
+	}
+
+
+	public long getFullHandshakes() {
+		return nFullHandshakes.sum();
+	}
+
+
+	public long getAbbreviatedHandshakes() {
+		return nAbbreviatedHandshakes.sum();
+	}
+
+
+	/**
+	 * 
+	 * @return the share of handshakes that resumed a session (0 if none so far)
+	 */
+	public double getResumptionRate() {
+		long nAbbreviated = getAbbreviatedHandshakes(), n = nAbbreviated + getFullHandshakes();
+		return n > 0 ? (double) nAbbreviated / n : 0;
+	}
+
+
+	@Override
+	public String toString() {
+		return "[SSL_HandshakeMetrics] full: "+getFullHandshakes()
+				+", abbreviated: "+getAbbreviatedHandshakes()
+				+" (resumption rate: "+Math.round(100 * getResumptionRate())+"%)";
+	}
+}
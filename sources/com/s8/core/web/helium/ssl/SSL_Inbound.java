@@ -8,7 +8,9 @@ import javax.net.ssl.SSLEngineResult;
 import javax.net.ssl.SSLException;
 import javax.net.ssl.SSLSession;
 
+import com.s8.core.web.helium.rx.RxBufferPool;
 import com.s8.core.web.helium.rx.RxInbound;
+import com.s8.core.web.helium.rx.RxSharedBuffer;
 import com.s8.core.web.helium.utilities.HeUtilities;
 
 /**
@@ -44,6 +46,25 @@ public abstract class SSL_Inbound extends RxInbound {
 	 */
 	private ByteBuffer applicationBuffer;
 
+	/**
+	 * initial capacity of the application buffer (reacquired with, once released
+	 * while idle)
+	 */
+	private int applicationBufferCapacity;
+
+	/**
+	 * Slicing unwrap: records are decrypted into shared (pooled, reference
+	 * counted) buffers, so that upper layers can keep slices of them instead of
+	 * copying (see <code>ssl_getReceivedBuffer</code>).
+	 */
+	private boolean isSlicingUnwrap;
+
+	/**
+	 * Owner reference of the buffer backing <code>applicationBuffer</code>
+	 * (slicing unwrap only)
+	 */
+	private RxSharedBuffer sharedBuffer;
+
 	boolean SSL_isVerbose = false;
 
 	private final Object lock = new Object();
@@ -63,6 +84,7 @@ public abstract class SSL_Inbound extends RxInbound {
 		super(name, configuration);
 
 		this.SSL_isVerbose = configuration.isSSLVerbose();
+		this.isSlicingUnwrap = configuration.isSlicingUnwrap;
 
 		/* <buffers> */
 
@@ -97,6 +119,41 @@ public abstract class SSL_Inbound extends RxInbound {
 
 	public abstract void ssl_onReceived(ByteBuffer buffer);
 
+
+	/**
+	 * Connection is closed: upper layers give back what they hold for data being
+	 * received (e.g. shared buffers retained for slices). Called under the same
+	 * lock as <code>ssl_onReceived</code>.
+	 */
+	public void ssl_onClosed() {
+	}
+
+
+	@Override
+	protected void rx_onClosed() {
+		synchronized (lock) {
+			ssl_onClosed();
+		}
+	}
+
+
+	/**
+	 * /!\ To be called from <code>ssl_onReceived</code> only.
+	 * 
+	 * <p>
+	 * With slicing unwrap, the buffer passed to <code>ssl_onReceived</code> is a
+	 * read-only view (same indices) of a shared buffer. Bytes of this view can be
+	 * kept without copy by retaining the shared buffer (and referencing its
+	 * backing array), until released.
+	 * </p>
+	 * 
+	 * @return the shared buffer backing the received bytes, <code>null</code> if
+	 *         slicing unwrap is disabled
+	 */
+	protected RxSharedBuffer ssl_getReceivedBuffer() {
+		return sharedBuffer;
+	}
+
 	/**
 	 * Access the other side of the connection
 	 * 
@@ -121,12 +178,67 @@ public abstract class SSL_Inbound extends RxInbound {
 		/*
 		 * Left in read mode outside retrieve state. So initialize with nothing to read
 		 */
-		applicationBuffer = ByteBuffer.allocate(capacity);
+		applicationBufferCapacity = capacity;
+		applicationBuffer = borrowApplicationBuffer(capacity);
 		applicationBuffer.position(0);
 		applicationBuffer.limit(0);
 		/* </buffer> */
 	}
 
+	/**
+	 * 
+	 * @param capacity
+	 * @return a new application buffer (WRITE mode)
+	 */
+	private ByteBuffer borrowApplicationBuffer(int capacity) {
+		if (isSlicingUnwrap) {
+			/* slices are handed out as arrays: heap buffers */
+			sharedBuffer = new RxSharedBuffer(bufferPool.isPooling() ? RxBufferPool.POOLED_HEAP : RxBufferPool.HEAP,
+					capacity);
+			return sharedBuffer.getBuffer();
+		} else {
+			return bufferPool.borrow(capacity);
+		}
+	}
+
+	/**
+	 * Give back application buffer (slices kept by upper layers remain valid)
+	 */
+	private void releaseApplicationBuffer() {
+		if (sharedBuffer != null) {
+			sharedBuffer.release();
+			sharedBuffer = null;
+		} else {
+			bufferPool.release(applicationBuffer);
+		}
+	}
+
+	@Override
+	protected void rxReleaseBuffers() {
+		synchronized (lock) {
+			super.rxReleaseBuffers();
+			releaseApplicationBuffer();
+			applicationBuffer = null;
+		}
+	}
+
+	@Override
+	protected boolean rxIsBufferIdle() {
+		synchronized (lock) {
+			return super.rxIsBufferIdle() && applicationBuffer != null && !applicationBuffer.hasRemaining();
+		}
+	}
+
+	@Override
+	protected void rxReacquireBuffers() {
+		synchronized (lock) {
+			super.rxReacquireBuffers();
+			if (applicationBuffer == null) {
+				initializeApplicationBuffer(applicationBufferCapacity);
+			}
+		}
+	}
+
 	/*
 	 * public void unwrap() { new Process(new Unwrapping()).launch(); }
 	 */
@@ -140,7 +252,14 @@ public abstract class SSL_Inbound extends RxInbound {
 		 * Trigger SSL_onReceived we ignore the fact that receiver can potentially read
 		 * more bytes
 		 */
-		ssl_onReceived(applicationBuffer);
+		if (sharedBuffer != null) {
+			/* upper layers only get a read-only view */
+			ByteBuffer view = applicationBuffer.asReadOnlyBuffer();
+			ssl_onReceived(view);
+			applicationBuffer.position(view.position());
+		} else {
+			ssl_onReceived(applicationBuffer);
+		}
 
 		/*
 		 * /!\ since endPoint.onReceived read ALL data, nothing left, so clear
@@ -149,6 +268,23 @@ public abstract class SSL_Inbound extends RxInbound {
 		// applicationBuffer.clear();
 	}
 
+	/**
+	 * Upper layer has deferred processing of decrypted data: deliver it again,
+	 * then go on unwrapping.
+	 */
+	@Override
+	protected void rx_onResumed() {
+		synchronized (lock) {
+			if (applicationBuffer.hasRemaining()) {
+				drain();
+			}
+		}
+		if (!getConnection().isInboundDeferred()) {
+			ssl_launchUnwrap();
+		}
+	}
+
+
 	/**
 	 * 
 	 */
@@ -160,7 +296,12 @@ public abstract class SSL_Inbound extends RxInbound {
 
 			int ops = UNWRAP;
 
-			while ((ops & UNWRAP) == UNWRAP) {
+			/*
+			 * stop unwrapping if upper layers have deferred (no more room for them), or
+			 * while the engine is waiting for delegated tasks (resumed once completed)
+			 */
+			while ((ops & UNWRAP) == UNWRAP && !getConnection().isInboundDeferred()
+					&& !getConnection().isRunningDelegatedTasks()) {
 
 				/* unwrap */
 				ops = unwrap();
@@ -194,16 +335,35 @@ public abstract class SSL_Inbound extends RxInbound {
 		try {
 
 			/* switch application buffer into write mode */
-			try {
-				applicationBuffer.compact();
-			} catch (IllegalArgumentException e) {
-				e.printStackTrace();
+			int start = 0;
+			if (sharedBuffer != null && sharedBuffer.getReferenceCount() > 1) {
+				/*
+				 * slices have been kept by upper layers: never overwrite, append (and move on
+				 * to a fresh buffer when not enough room is left for a record)
+				 */
+				if (applicationBuffer.capacity() - applicationBuffer.limit() < engine.getSession()
+						.getApplicationBufferSize()) {
+					replaceApplicationBuffer(applicationBuffer.capacity());
+				}
+				start = applicationBuffer.position();
+				applicationBuffer.position(applicationBuffer.limit());
+				applicationBuffer.limit(applicationBuffer.capacity());
+			} else {
+				try {
+					applicationBuffer.compact();
+				} catch (IllegalArgumentException e) {
+					e.printStackTrace();
+				}
 			}
 
 			SSLEngineResult result = engine.unwrap(networkBuffer, applicationBuffer);
 
-			/* switch back application buffer into read mode */
-			applicationBuffer.flip();
+			/* switch back application buffer into read mode (flip, unless appended) */
+			applicationBuffer.limit(applicationBuffer.position());
+			applicationBuffer.position(start);
+
+			// end point listening to result for updating phase
+			getConnection().onResult(result);
 
 			if (SSL_isVerbose) {
 				System.out.println("[SSL_Inbound] " + name + " :");
@@ -295,14 +455,18 @@ public abstract class SSL_Inbound extends RxInbound {
 			case NEED_TASK:
 				switch (result.getStatus()) {
 
-				/* handle delegated task */
+				/* handle delegated task (stop if offloaded: resumed once completed) */
 				case OK:
-					runDelegatedTasks();
+					if (!runDelegatedTasks()) {
+						return STOP;
+					}
 					return UNWRAP;
 
 				/* stop the flow, because need to pump more data */
 				case BUFFER_UNDERFLOW:
-					runDelegatedTasks();
+					if (!runDelegatedTasks()) {
+						return STOP;
+					}
 					boolean isReceivedRequired = handleNetworkBufferUnderflow();
 					if (isReceivedRequired) {
 						return STOP | RECEIVE; /* stop */
@@ -312,8 +476,10 @@ public abstract class SSL_Inbound extends RxInbound {
 
 					/* continue wrapping, because no additional I/O call involved */
 				case BUFFER_OVERFLOW:
-					runDelegatedTasks();
 					handleApplicationBufferOverflow();
+					if (!runDelegatedTasks()) {
+						return STOP;
+					}
 					return UNWRAP;
 
 				/* this side has been closed, so initiate closing */
@@ -438,14 +604,13 @@ public abstract class SSL_Inbound extends RxInbound {
 	/* <handles> */
 
 	/**
-	 * Synchronous to make code easier (stability > performance)
+	 * Inline, or offloaded to the endpoint task executor (see
+	 * <code>SSL_Connection.ssl_runDelegatedTasks()</code>)
+	 * 
+	 * @return true if tasks have been run, false if offloaded
 	 */
-	private void runDelegatedTasks() {
-		Runnable runnable;
-		while ((runnable = engine.getDelegatedTask()) != null) {
-			runnable.run();
-		}
-		;
+	private boolean runDelegatedTasks() {
+		return getConnection().ssl_runDelegatedTasks();
 	}
 
 	/**
@@ -466,7 +631,12 @@ public abstract class SSL_Inbound extends RxInbound {
 		 * call SSLSession.getApplicationBufferSize() and compare that value with the
 		 * space available in the destination buffer, enlarging the buffer if necessary
 		 */
-		if (applicationBuffer.capacity() < engine.getSession().getApplicationBufferSize()) {
+		if (sharedBuffer != null && sharedBuffer.getReferenceCount() > 1) {
+			/* cannot compact: move on to a buffer with enough room for a record */
+			replaceApplicationBuffer(Math.max(applicationBuffer.capacity(),
+					engine.getSession().getApplicationBufferSize() + applicationBuffer.remaining()));
+		}
+		else if (applicationBuffer.capacity() < engine.getSession().getApplicationBufferSize()) {
 
 			/* new capacity first guess */
 			int nc = 2 * applicationBuffer.capacity();
@@ -573,19 +743,36 @@ public abstract class SSL_Inbound extends RxInbound {
 	void increaseApplicationBufferCapacity(int capacity) {
 		if (capacity > applicationBuffer.capacity()) {
 
-			/* allocate new buffer */
-			ByteBuffer extendedBuffer = ByteBuffer.allocate(capacity);
+			/* borrow new buffer (from the upper size classes) */
+			replaceApplicationBuffer(capacity);
+		}
+	}
 
-			/* copy remaining content */
-			// extendedBuffer.put(applicationBuffer);
-			// TODO
+	/**
+	 * Move remaining content to a new application buffer, and give back the
+	 * former one
+	 * 
+	 * @param capacity
+	 */
+	private void replaceApplicationBuffer(int capacity) {
+		ByteBuffer formerBuffer = applicationBuffer;
+		RxSharedBuffer formerSharedBuffer = sharedBuffer;
+
+		ByteBuffer extendedBuffer = borrowApplicationBuffer(capacity);
 
-			/* replace */
-			applicationBuffer = extendedBuffer;
+		/* copy remaining content (application buffer is in READ mode) */
+		extendedBuffer.put(formerBuffer);
 
-			/* buffer is now in READ mode */
-			applicationBuffer.flip();
+		/* replace, and give back the former one */
+		if (formerSharedBuffer != null) {
+			formerSharedBuffer.release();
+		} else {
+			bufferPool.release(formerBuffer);
 		}
+		applicationBuffer = extendedBuffer;
+
+		/* buffer is now in READ mode */
+		applicationBuffer.flip();
 	}
 
 	/* </utilities> */
@@ -16,10 +16,14 @@ import java.security.NoSuchAlgorithmException;
 import java.security.SecureRandom;
 import java.security.UnrecoverableKeyException;
 import java.security.cert.CertificateException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.net.ssl.KeyManager;
 import javax.net.ssl.KeyManagerFactory;
 import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLParameters;
 import javax.net.ssl.SSLSessionContext;
 import javax.net.ssl.TrustManager;
 import javax.net.ssl.TrustManagerFactory;
@@ -96,17 +100,100 @@ public class SSL_Module {
 		trustManagerFactory.init(keyStore);
 		TrustManager[] trustManagers = trustManagerFactory.getTrustManagers();
 
-		SSLContext sslContext = SSLContext.getInstance(configuration.getEncryptionProtocol());
+		SSLContext sslContext = getInstance(configuration.getEncryptionProtocol(), configuration.isSessionTicketEnabled);
 		sslContext.init(keyManagers, trustManagers, new SecureRandom());
 		
-		SSLSessionContext sessionContext = sslContext.getServerSessionContext();
-		sessionContext.setSessionTimeout(configuration.getTimeout());  // Set timeout to 30 minutes (1800 seconds)
-		
+		/* resumption: both sides (server sessions, and sessions to peers when acting as a client) */
+		setupSessionContext(sslContext.getServerSessionContext(), configuration);
+		setupSessionContext(sslContext.getClientSessionContext(), configuration);
 		
 		return sslContext;
 	}
 
 
+	/**
+	 * JSSE reads session ticket support from system properties when the context
+	 * (and its session caches) is instantiated: set them for that time only.
+	 * 
+	 * @param protocol
+	 * @param isSessionTicketEnabled
+	 * @return a new (not initialized) context
+	 * @throws NoSuchAlgorithmException
+	 */
+	private static synchronized SSLContext getInstance(String protocol, boolean isSessionTicketEnabled) 
+			throws NoSuchAlgorithmException {
+		String[] properties = { 
+				"jdk.tls.server.enableSessionTicketExtension", 
+				"jdk.tls.client.enableSessionTicketExtension" };
+		String[] previousValues = new String[properties.length];
+		for(int i = 0; i < properties.length; i++) {
+			previousValues[i] = System.setProperty(properties[i], Boolean.toString(isSessionTicketEnabled));
+		}
+		try {
+			return SSLContext.getInstance(protocol);
+		}
+		finally {
+			for(int i = 0; i < properties.length; i++) {
+				if(previousValues[i] != null) { System.setProperty(properties[i], previousValues[i]); }
+				else { System.clearProperty(properties[i]); }
+			}
+		}
+	}
+
+
+	/**
+	 * 
+	 * @param sessionContext
+	 * @param configuration
+	 */
+	private static void setupSessionContext(SSLSessionContext sessionContext, SSL_WebConfiguration configuration) {
+		sessionContext.setSessionTimeout(configuration.getTimeout());  // Set timeout to 30 minutes (1800 seconds)
+		if(configuration.sessionCacheSize >= 0) {
+			sessionContext.setSessionCacheSize(configuration.sessionCacheSize);
+		}
+	}
+
+
+	/**
+	 * Apply protocol versions, cipher suites and named groups of the
+	 * configuration (left to JDK defaults when not set). With cipher suites
+	 * set, the server enforces their order.
+	 * 
+	 * @param parameters
+	 * @param configuration
+	 */
+	public static void setupParameters(SSLParameters parameters, SSL_WebConfiguration configuration) {
+		if(configuration.enabledProtocols != null) {
+			parameters.setProtocols(configuration.enabledProtocols);
+		}
+		if(configuration.cipherSuites != null) {
+			parameters.setCipherSuites(configuration.cipherSuites);
+			parameters.setUseCipherSuitesOrder(true);
+		}
+		if(configuration.namedGroups != null) {
+			parameters.setNamedGroups(configuration.namedGroups);
+		}
+	}
+
+
+	/**
+	 * 
+	 * @param configuration
+	 * @return an executor of <code>delegatedTaskThreads</code> daemon threads,
+	 *         <code>null</code> (delegated tasks run inline) if 0
+	 */
+	public static Executor createTaskExecutor(SSL_WebConfiguration configuration) {
+		int nThreads = configuration.delegatedTaskThreads;
+		if(nThreads <= 0) { return null; }
+		AtomicInteger index = new AtomicInteger(0);
+		return Executors.newFixedThreadPool(nThreads, runnable -> {
+			Thread thread = new Thread(runnable, "ssl-tasks-"+configuration.name+"-"+index.getAndIncrement());
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+
 	public static SSLContext createContext(String pathname) throws Exception {
 
 		// retrieve configuration
@@ -43,6 +43,13 @@ public abstract class SSL_Outbound extends RxOutbound {
 	public final static int APPLICATION_OUTPUT_STARTING_CAPACITY = 17408;
 
 
+	/**
+	 * Maximum plaintext length of a TLS record (2^14): gathering beyond that is
+	 * useless, since one wrap produces (at most) one record.
+	 */
+	public final static int MAX_RECORD_PLAINTEXT_LENGTH = 16384;
+
+
 	
 	/**
 	 * Local copy of the engine. Allocation managed ONLY by the connection (at SSL level)
@@ -57,6 +64,31 @@ public abstract class SSL_Outbound extends RxOutbound {
 	 */
 	private ByteBuffer applicationBuffer;
 
+	/**
+	 * initial capacity of the application buffer (reacquired with, once released
+	 * while idle)
+	 */
+	private int applicationBufferCapacity;
+
+
+	/**
+	 * Wrap application slices in place (see <code>ssl_onGathering</code>)
+	 */
+	private boolean isGatheringWrap;
+
+	/**
+	 * Sources of the current gathering wrap: application buffer (READ mode), then
+	 * gathered slices.
+	 */
+	private ByteBuffer[] sources = new ByteBuffer[8];
+
+	private int nSources;
+
+	/**
+	 * gathered bytes left unconsumed by the last wrap
+	 */
+	private long nGatheredBytes;
+
 
 	boolean SSL_isVerbose = false;
 
@@ -81,6 +113,7 @@ public abstract class SSL_Outbound extends RxOutbound {
 
 
 		this.SSL_isVerbose = configuration.SSL_isVerbose;
+		this.isGatheringWrap = configuration.isGatheringWrap;
 
 	}
 
@@ -95,6 +128,16 @@ public abstract class SSL_Outbound extends RxOutbound {
 
 
 
+	/**
+	 * Direct writes only once the handshake is done (handshake involves both
+	 * sides of the connection)
+	 */
+	@Override
+	protected boolean rx_isDirectWritable() {
+		return getConnection().isApplicationData();
+	}
+
+
 	@Override
 	public void rx_onPreSending() throws IOException {
 		ssl_launchWrap();
@@ -136,7 +179,33 @@ public abstract class SSL_Outbound extends RxOutbound {
 
 
 	private void initializeApplicationBuffer(int capacity) {
-		applicationBuffer = ByteBuffer.allocate(capacity);	
+		applicationBufferCapacity = capacity;
+		applicationBuffer = bufferPool.borrow(capacity);	
+	}
+
+	@Override
+	protected void releaseBuffers() {
+		synchronized (lock) {
+			super.releaseBuffers();
+			bufferPool.release(applicationBuffer);
+			applicationBuffer = null;
+		}
+	}
+
+	@Override
+	protected boolean isBufferIdle() {
+		synchronized (lock) {
+			return super.isBufferIdle() && applicationBuffer != null && applicationBuffer.position() == 0
+					&& nGatheredBytes == 0;
+		}
+	}
+
+	@Override
+	protected void reacquireBuffers() {
+		synchronized (lock) {
+			super.reacquireBuffers();
+			if(applicationBuffer == null) { initializeApplicationBuffer(applicationBufferCapacity); }
+		}
 	}
 
 	/**
@@ -158,31 +227,99 @@ public abstract class SSL_Outbound extends RxOutbound {
 	public abstract void ssl_onSending(ByteBuffer buffer);
 
 
+	/**
+	 * /!\ Called under wrap lock, before each wrap (if
+	 * <code>SSL-gathering_wrap</code> is enabled).
+	 * 
+	 * <p>
+	 * Gathering alternative to <code>ssl_onSending</code>: present application
+	 * slices with <code>gather</code>, in sending order, instead of copying them
+	 * into the application buffer. They are encrypted in place, straight into the
+	 * network buffer, and must be presented again (and left untouched) until
+	 * fully consumed (see <code>ssl_onGathered</code>).
+	 * </p>
+	 * <p>
+	 * Gathering nothing falls back to <code>ssl_onSending</code> for this wrap.
+	 * </p>
+	 * 
+	 * @param nBytes number of bytes worth gathering
+	 */
+	protected void ssl_onGathering(int nBytes) {
+		/* no gathering by default */
+	}
+
 
 	/**
-	 * Key entry point
+	 * /!\ Called under wrap lock.
+	 * 
+	 * Engine has consumed (part of) the gathered slices: fully consumed ones can be
+	 * dropped.
+	 */
+	protected void ssl_onGathered() {
+		/* no gathering by default */
+	}
+
+
+	/**
+	 * To be called by <code>ssl_onGathering</code> only.
+	 * 
+	 * @param slice application bytes (READ mode)
+	 */
+	protected void gather(ByteBuffer slice) {
+		if(nSources == sources.length) {
+			ByteBuffer[] extended = new ByteBuffer[2 * nSources];
+			System.arraycopy(sources, 0, extended, 0, nSources);
+			sources = extended;
+		}
+		sources[nSources++] = slice;
+	}
+
+
+	/**
+	 * 
+	 * @return true if application bytes are still waiting to be wrapped
+	 */
+	private boolean isApplicationDataPending() {
+		return applicationBuffer.position() > 0 || nGatheredBytes > 0;
+	}
+
+
+
+	/**
+	 * Key entry point. Thread safe: besides sending, wrap is also launched by
+	 * inbound traffic (handshake, close_notify, key update) and by delegated tasks
+	 * completion, hence the write ownership (network buffer is also written by
+	 * direct writes).
 	 */
 	void ssl_launchWrap() {
 		
 		int extOps = 0x00;
 		
-		synchronized (lock) {
-			
-			int ops = WRAP;
-			
-			while((ops & WRAP) == WRAP) {
-				
-				/* perform operation */
-				ops = wrap();
-				
-				/* accumulate externale operations */
-				extOps |= ops;
-			}
-			
-			if(SSL_isVerbose) {
-				System.out.println("[SSL_Outbound] "+name+" Exiting run...");
+		/* lock order: write ownership, then wrap lock */
+		acquireWriteOwnership();
+		try {
+			synchronized (lock) {
+
+				int ops = WRAP;
+
+				/* paused while the engine is waiting for delegated tasks (resumed once completed) */
+				while((ops & WRAP) == WRAP && !getConnection().isRunningDelegatedTasks()) {
+
+					/* perform operation */
+					ops = wrap();
+
+					/* accumulate externale operations */
+					extOps |= ops;
+				}
+
+				if(SSL_isVerbose) {
+					System.out.println("[SSL_Outbound] "+name+" Exiting run...");
+				}
 			}
 		}
+		finally {
+			releaseWriteOwnership();
+		}
 		
 		/* avoid dead lock by performaing following up operations outside critical section */
 		if((extOps & SEND) == SEND) { send(); }
@@ -214,7 +351,14 @@ public abstract class SSL_Outbound extends RxOutbound {
 		 * Wrapping is greedy, i.e. it retrieves as much application data as possible
 		 * before retrying to push to the network
 		 */
-		pump();
+		boolean isGathering = false;
+		if(isGatheringWrap) {
+			/* slot 0 reserved for application buffer */
+			nSources = 1;
+			ssl_onGathering(MAX_RECORD_PLAINTEXT_LENGTH);
+			isGathering = nSources > 1;
+		}
+		if(!isGathering) { pump(); }
 
 		/* </retrieve> */
 
@@ -233,7 +377,25 @@ public abstract class SSL_Outbound extends RxOutbound {
 			applicationBuffer.flip();
 
 
-			SSLEngineResult result = engine.wrap(applicationBuffer, networkBuffer);
+			SSLEngineResult result;
+			if(isGathering) {
+				/* what has already been copied goes first */
+				sources[0] = applicationBuffer;
+				result = engine.wrap(sources, 0, nSources, networkBuffer);
+
+				nGatheredBytes = 0;
+				for(int i = 0; i < nSources; i++) {
+					if(i > 0) { nGatheredBytes += sources[i].remaining(); }
+					sources[i] = null;
+				}
+				ssl_onGathered();
+			}
+			else {
+				result = engine.wrap(applicationBuffer, networkBuffer);
+			}
+
+			// end point listening to result for updating phase
+			getConnection().onResult(result);
 
 			/*
 			if(!hasProducedBytes && result.bytesProduced() > 0) {
@@ -336,21 +498,22 @@ public abstract class SSL_Outbound extends RxOutbound {
 				switch(result.getStatus()) {
 
 				case OK: 
-					runDelegatedTasks();
+					/* offloaded: stop (resumed once completed), but send what's already wrapped */
+					if(!runDelegatedTasks()) { return networkBuffer.position() > 0 ? STOP | SEND : STOP; }
 					/* for any other task than WRAP (accumulating bytes to be sent) send immediately what's possible */
 					if(networkBuffer.position() > 0) { return STOP | SEND; }
 					else { return WRAP; /* continue */  }
 
 				case BUFFER_UNDERFLOW: 
-					runDelegatedTasks();
 					handleApplicationBufferUnderflow(); 
+					if(!runDelegatedTasks()) { return networkBuffer.position() > 0 ? STOP | SEND : STOP; }
 					/* for any other task than WRAP (accumulating bytes to be sent) send immediately what's possible */
 					if(networkBuffer.position() > 0) { return STOP | SEND; }
 					else { return WRAP; /* continue */  }
 
 				case BUFFER_OVERFLOW: 
-					runDelegatedTasks();
 					boolean isSendingRequired = handleNetworkBufferOverflow();
+					if(!runDelegatedTasks()) { return isSendingRequired || networkBuffer.position() > 0 ? STOP | SEND : STOP; }
 					/* for any other task than WRAP (accumulating bytes to be sent) send immediately what's possible */
 					if(isSendingRequired || networkBuffer.position() > 0) { return STOP | SEND; }
 					else { return WRAP; /* continue */  }
@@ -374,7 +537,7 @@ public abstract class SSL_Outbound extends RxOutbound {
 					/* for any other task than WRAP (accumulating bytes to be sent) send immediately what's possible */
 					return (networkBuffer.position() > 0 ? SEND : 0) |
 							/* there are actually APP bytes to wrap and send (and networkBuffer is empty) */
-							(applicationBuffer.position() > 0 ? WRAP : 0) |
+							(isApplicationDataPending() ? WRAP : 0) |
 							/* in any case wake-up inbound side to notify FINISHED */
 							UNWRAP;
 					
@@ -384,7 +547,7 @@ public abstract class SSL_Outbound extends RxOutbound {
 					/* for any other task than WRAP (accumulating bytes to be sent) send immediately what's possible */
 					return (networkBuffer.position() > 0 ? SEND : 0) |
 							/* there are actually APP bytes to wrap and send (and networkBuffer is empty) */
-							(applicationBuffer.position() > 0 ? WRAP : 0) |
+							(isApplicationDataPending() ? WRAP : 0) |
 							/* in any case wake-up inbound side to notify FINISHED */
 							UNWRAP;
 
@@ -393,7 +556,7 @@ public abstract class SSL_Outbound extends RxOutbound {
 					/* for any other task than WRAP (accumulating bytes to be sent) send immediately what's possible */
 					return ((networkBuffer.position() > 0 | isSendingRequired) ? SEND : 0) |
 							/* there are actually APP bytes to wrap and send (and networkBuffer is empty) */
-							(applicationBuffer.position() > 0 ? WRAP : 0) |
+							(isApplicationDataPending() ? WRAP : 0) |
 							/* in any case wake-up inbound side to notify FINISHED */
 							UNWRAP;
 
@@ -410,7 +573,7 @@ public abstract class SSL_Outbound extends RxOutbound {
 					/* for any other task than WRAP (accumulating bytes to be sent) send immediately what's possible */
 					if(networkBuffer.position() > 0) { return STOP | SEND; } /* STOP_AND_SEND */
 					/* there are actually APP bytes to wrap and send (and networkBuffer is empty) */
-					else if(applicationBuffer.position() > 0) { return WRAP; } /* STOP_AND_SEND */
+					else if(isApplicationDataPending()) { return WRAP; } /* STOP_AND_SEND */
 					/* everything has been consumed (APP) and transmitted (NET), so try to relaunch receive */
 					else { return  STOP | RECEIVE; }
 
@@ -419,7 +582,7 @@ public abstract class SSL_Outbound extends RxOutbound {
 					/* for any other task than WRAP (accumulating bytes to be sent) send immediately what's possible */
 					if(networkBuffer.position() > 0) { return STOP | SEND; } /* STOP_AND_SEND */
 					/* there are actually APP bytes to wrap and send (and networkBuffer is empty) */
-					else if(applicationBuffer.position() > 0) { return WRAP; } /* STOP_AND_SEND */
+					else if(isApplicationDataPending()) { return WRAP; } /* STOP_AND_SEND */
 					/* everything has been consumed (APP) and transmitted (NET), so try to relaunch receive */
 					else { return  STOP | RECEIVE; }
 
@@ -428,7 +591,7 @@ public abstract class SSL_Outbound extends RxOutbound {
 					/* for any other task than WRAP (accumulating bytes to be sent) send immediately what's possible */
 					if(isSendingRequired || networkBuffer.position() > 0) { return STOP | SEND; } /* STOP_AND_SEND */
 					/* there are actually APP bytes to wrap and send (and networkBuffer is empty) */
-					else if(applicationBuffer.position() > 0) { return WRAP; } /* STOP_AND_SEND */
+					else if(isApplicationDataPending()) { return WRAP; } /* STOP_AND_SEND */
 					/* everything has been consumed (APP) and transmitted (NET), so try to relaunch receive */
 					else { return  STOP | RECEIVE; }
 
@@ -462,13 +625,13 @@ public abstract class SSL_Outbound extends RxOutbound {
 
 
 	/**
-	 * Synchronous to make code easier (stability > performance)
+	 * Inline, or offloaded to the endpoint task executor (see
+	 * <code>SSL_Connection.ssl_runDelegatedTasks()</code>)
+	 * 
+	 * @return true if tasks have been run, false if offloaded
 	 */
-	private void runDelegatedTasks() {
-		Runnable runnable;
-		while((runnable = engine.getDelegatedTask()) != null) {
-			runnable.run();
-		};
+	private boolean runDelegatedTasks() {
+		return getConnection().ssl_runDelegatedTasks();
 	}
 
 	/**
@@ -500,6 +663,11 @@ public abstract class SSL_Outbound extends RxOutbound {
 
 			return false; /* no sending required */
 		}
+		/* room taken by bytes already written: recover it, then wrap again */
+		else if(reclaimNetworkBuffer()) {
+
+			return false; /* no sending required */
+		}
 		/* application buffer is likely to be filled, so drain */
 		else if(networkBuffer.position() > networkBuffer.capacity()) {
 
@@ -557,31 +725,37 @@ public abstract class SSL_Outbound extends RxOutbound {
 
 		/* wrapping */
 		try {
-			boolean isWrapCompleted = false;
-			while(!isWrapCompleted) {
-
-				/*
-				 * (JAVA doc) states that:
-				 * 
-				 * In all cases, closure handshake messages are generated by the engine, and
-				 * wrap() should be repeatedly called until the resulting SSLEngineResult's
-				 * status returns "CLOSED", or isOutboundDone() returns true.
-				 * 
-				 */
-				/* wrapping */
-				SSLEngineResult result = engine.wrap(applicationBuffer, networkBuffer);
-
-				if(SSL_isVerbose) {
-					System.out.println("[SSL_Outbound] : "+result);
-				}
+			acquireWriteOwnership();
+			try {
+				boolean isWrapCompleted = false;
+				while(!isWrapCompleted) {
+
+					/*
+					 * (JAVA doc) states that:
+					 * 
+					 * In all cases, closure handshake messages are generated by the engine, and
+					 * wrap() should be repeatedly called until the resulting SSLEngineResult's
+					 * status returns "CLOSED", or isOutboundDone() returns true.
+					 * 
+					 */
+					/* wrapping */
+					SSLEngineResult result = engine.wrap(applicationBuffer, networkBuffer);
+
+					if(SSL_isVerbose) {
+						System.out.println("[SSL_Outbound] : "+result);
+					}
 
-				// end point listening to result for updating phase
-				getConnection().onResult(result);
+					// end point listening to result for updating phase
+					getConnection().onResult(result);
 
-				if(result.getStatus()==Status.CLOSED || engine.isOutboundDone() || result.bytesProduced()==0) {
-					isWrapCompleted = true;
+					if(result.getStatus()==Status.CLOSED || engine.isOutboundDone() || result.bytesProduced()==0) {
+						isWrapCompleted = true;
+					}
 				}
 			}
+			finally {
+				releaseWriteOwnership();
+			}
 
 			/*
 			 * All data obtained from the wrap() method should be sent to the peer.
@@ -631,16 +805,17 @@ public abstract class SSL_Outbound extends RxOutbound {
 	 */
 	public void increaseApplicationBufferCapacity(int capacity) {
 		if(capacity > applicationBuffer.capacity()) {
-			/* allocate new buffer */
-			ByteBuffer extendedBuffer = ByteBuffer.allocate(capacity);
+			/* borrow new buffer (from the upper size classes) */
+			ByteBuffer extendedBuffer = bufferPool.borrow(capacity);
 
 			/* switch application buffer to READ mode */
 			applicationBuffer.flip();
 
 			/* copy remaining content */
-			//extendedBuffer.put(applicationBuffer);
+			extendedBuffer.put(applicationBuffer);
 
-			/* replace (application buffer is in WRITE mode) */
+			/* replace (application buffer is in WRITE mode), and give back the former one */
+			bufferPool.release(applicationBuffer);
 			applicationBuffer = extendedBuffer;
 		}
 	}
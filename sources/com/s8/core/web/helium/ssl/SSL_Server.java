@@ -1,5 +1,7 @@
 package com.s8.core.web.helium.ssl;
 
+import java.util.concurrent.Executor;
+
 import javax.net.ssl.SSLContext;
 
 import com.s8.core.web.helium.rx.RxServer;
@@ -8,6 +10,10 @@ public abstract class SSL_Server extends RxServer implements SSL_Endpoint {
 
 	private SSLContext SSL_context;
 
+	private Executor SSL_taskExecutor;
+
+	private final SSL_HandshakeMetrics SSL_handshakeMetrics = new SSL_HandshakeMetrics();
+
 	public SSL_Server() {
 		super();
 	}
@@ -31,6 +37,33 @@ public abstract class SSL_Server extends RxServer implements SSL_Endpoint {
 		SSL_WebConfiguration configuration = getWebConfiguration();
 		SSL_context = SSL_Module.createContext(configuration);
 
+		if(SSL_taskExecutor == null) {
+			SSL_taskExecutor = SSL_Module.createTaskExecutor(configuration);
+		}
+	}
+
+
+	/**
+	 * Run delegated tasks on <code>executor</code> (MUST be called before
+	 * <code>start()</code>). Otherwise, an executor is created according to
+	 * <code>SSL_WebConfiguration.delegatedTaskThreads</code>.
+	 * 
+	 * @param executor
+	 */
+	public void ssl_setTaskExecutor(Executor executor) {
+		this.SSL_taskExecutor = executor;
+	}
+
+
+	@Override
+	public Executor ssl_getTaskExecutor() {
+		return SSL_taskExecutor;
+	}
+
+
+	@Override
+	public SSL_HandshakeMetrics ssl_getHandshakeMetrics() {
+		return SSL_handshakeMetrics;
 	}
 
 
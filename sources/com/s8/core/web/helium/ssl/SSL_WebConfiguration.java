@@ -25,15 +25,82 @@ public class SSL_WebConfiguration extends RxWebConfiguration {
 	
 	public String[] applicationProtocols = {"h2", "http/1.1"};
 
-	private String encryptionProtocol = "TLSv1.2";
+	private String encryptionProtocol = "TLSv1.3";
+
+
+	/**
+	 * Protocol versions enabled on engines: TLS 1.3 (1-RTT handshake) first,
+	 * TLS 1.2 kept as a fallback for older peers. <code>null</code> for JDK
+	 * defaults.
+	 */
+	public String[] enabledProtocols = { "TLSv1.3", "TLSv1.2" };
+
+
+	/**
+	 * Cipher suites, by order of preference (enforced by the server), e.g.
+	 * AES-GCM first on CPUs with AES instructions, ChaCha20-Poly1305 first
+	 * otherwise. <code>null</code> for JDK defaults.
+	 */
+	public String[] cipherSuites = null;
+
+
+	/**
+	 * Key exchange groups, by order of preference (e.g. <code>x25519</code>
+	 * first). <code>null</code> for JDK defaults.
+	 */
+	public String[] namedGroups = null;
 	
 	private long timeout = 1800;
 
+
+	/**
+	 * Number of threads running <code>SSLEngine</code> delegated tasks (key
+	 * exchange, certificate validation...), so that handshakes no longer stall
+	 * the reactors. 0 to run them inline, on the reactor thread.
+	 */
+	public int delegatedTaskThreads = 0;
+
+
+	/**
+	 * Maximum number of sessions kept for resumption (server and client
+	 * caches). 0 for no limit, -1 for the JDK default.
+	 */
+	public int sessionCacheSize = -1;
+
+
+	/**
+	 * Stateless session resumption (session tickets, RFC 5077 / TLS 1.3 PSK):
+	 * the session state is handed to the client, encrypted, instead of being
+	 * kept in the server cache.
+	 */
+	public boolean isSessionTicketEnabled = true;
+
+
+	/**
+	 * Encrypt application slices in place (gathering wrap), instead of copying
+	 * them into the application buffer first (see
+	 * <code>SSL_Outbound.ssl_onGathering</code>).
+	 */
+	public boolean isGatheringWrap = true;
+
+
+	/**
+	 * Decrypt inbound records into pooled, reference counted buffers, so that
+	 * upper layers can keep slices of them instead of copying (see
+	 * <code>SSL_Inbound.ssl_getReceivedBuffer</code>). Slices MUST then be
+	 * released by the application (e.g. <code>HTTP2_Message.release()</code>).
+	 */
+	public boolean isSlicingUnwrap = false;
+
 	
 	public String getName() {
 		return name;
 	}
 	
+	/**
+	 * 
+	 * @return session lifetime (in seconds), for resumption
+	 */
 	public int getTimeout() {
 		return (int) timeout;
 	}
@@ -104,6 +171,55 @@ public class SSL_WebConfiguration extends RxWebConfiguration {
 		this.timeout = timeout;
 	}
 
+	@XML_SetElement(tag="SSL-enabled_protocols")
+	public void setEnabledProtocols(String protocols) {
+		this.enabledProtocols = parseList(protocols);
+	}
+
+	@XML_SetElement(tag="SSL-cipher_suites")
+	public void setCipherSuites(String suites) {
+		this.cipherSuites = parseList(suites);
+	}
+
+	@XML_SetElement(tag="SSL-named_groups")
+	public void setNamedGroups(String groups) {
+		this.namedGroups = parseList(groups);
+	}
+
+	/**
+	 * 
+	 * @param list (comma or space separated)
+	 * @return
+	 */
+	private static String[] parseList(String list) {
+		return list.trim().split("[ ,]+");
+	}
+
+	@XML_SetElement(tag="SSL-session_cache_size")
+	public void setSessionCacheSize(int size) {
+		this.sessionCacheSize = size;
+	}
+
+	@XML_SetElement(tag="SSL-session_tickets")
+	public void setSessionTicketEnabled(boolean isEnabled) {
+		this.isSessionTicketEnabled = isEnabled;
+	}
+
+	@XML_SetElement(tag="SSL-delegated_task_threads")
+	public void setDelegatedTaskThreads(int nThreads) {
+		this.delegatedTaskThreads = nThreads;
+	}
+
+	@XML_SetElement(tag="SSL-gathering_wrap")
+	public void setGatheringWrap(boolean isEnabled) {
+		this.isGatheringWrap = isEnabled;
+	}
+
+	@XML_SetElement(tag="SSL-slicing_unwrap")
+	public void setSlicingUnwrap(boolean isEnabled) {
+		this.isSlicingUnwrap = isEnabled;
+	}
+
 	@XML_SetElement(tag="name")
 	public void setName(String name) {
 		this.name = name;
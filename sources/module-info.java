@@ -36,5 +36,7 @@ module com.s8.core.web.helium {
 	requires transitive com.s8.core.io.xml;
 	requires transitive com.s8.core.arch.silicon;
 	
+	requires jdk.net;
+	
 	
 }
\ No newline at end of file
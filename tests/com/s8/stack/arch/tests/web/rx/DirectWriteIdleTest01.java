@@ -0,0 +1,128 @@
+package com.s8.stack.arch.tests.web.rx;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.s8.core.arch.silicon.SiliconEngine;
+import com.s8.core.web.helium.rx.RxConnection;
+import com.s8.core.web.helium.rx.RxMetrics;
+import com.s8.core.web.helium.rx.RxOutbound;
+import com.s8.core.web.helium.rx.RxServer;
+import com.s8.core.web.helium.rx.RxWebConfiguration;
+
+
+/**
+ * A connection that only sends through direct writes made by an application
+ * thread (the client never writes anything) MUST NOT be closed by the idle
+ * timeout while it keeps sending, and these writes MUST show up in metrics.
+ * Once it stops sending, the idle timeout applies again.
+ *
+ * @author pierreconvert
+ *
+ */
+public class DirectWriteIdleTest01 {
+
+	public final static long IDLE_TIMEOUT = 600;
+
+	public final static long PUSH_PERIOD = 150;
+
+	public final static int N_PUSHES = 16;
+
+
+	private static volatile RxOutbound serverOutbound;
+
+	private static final AtomicInteger pending = new AtomicInteger();
+
+
+	public static void main(String[] args) throws Exception {
+
+		RxWebConfiguration webConfig = new RxWebConfiguration();
+		webConfig.port = 1338;
+		webConfig.idleTimeout = IDLE_TIMEOUT;
+		webConfig.timerResolution = 50;
+		webConfig.isDirectWrite = true;
+
+		SiliconEngine ng = SiliconEngine.startBasic();
+
+		RxServer server = new RxServer() {
+
+			@Override
+			public SiliconEngine getSiliconEngine() {
+				return ng;
+			}
+
+			@Override
+			public RxConnection createConnection(SelectionKey key, SocketChannel socketChannel) throws IOException {
+				RxOutbound_Impl01 outbound = new RxOutbound_Impl01("server", webConfig) {
+
+					@Override
+					public void rx_onPreSending() {
+						int n = Math.min(pending.getAndSet(0), networkBuffer.remaining());
+						for(int i = 0; i < n; i++) { networkBuffer.put((byte) 'x'); }
+					}
+				};
+				serverOutbound = outbound;
+				return new RxConnection_Impl01(this, key, socketChannel,
+						new RxInbound_Impl01("server", webConfig) {
+
+							@Override
+							public void rx_onReceived() {
+								networkBuffer.position(networkBuffer.limit());
+								receive();
+							}
+						},
+						outbound);
+			}
+
+			@Override
+			public RxWebConfiguration getWebConfiguration() {
+				return webConfig;
+			}
+		};
+		server.start();
+
+		/* receive-only client */
+		Socket socket = new Socket("localhost", webConfig.port);
+		socket.setSoTimeout((int) (4 * IDLE_TIMEOUT));
+		InputStream input = socket.getInputStream();
+
+		while(serverOutbound == null) { Thread.sleep(10); }
+		RxMetrics.Snapshot before = server.getMetrics();
+
+		/* push from this (application) thread for well over the idle timeout */
+		boolean isAlive = true;
+		for(int i = 0; i < N_PUSHES && isAlive; i++) {
+			pending.incrementAndGet();
+			serverOutbound.send();
+			isAlive = input.read() == 'x';
+			Thread.sleep(PUSH_PERIOD);
+		}
+		long pushDuration = N_PUSHES * PUSH_PERIOD;
+		System.out.println("alive after "+pushDuration+" ms of direct writes only (idle timeout: "
+				+IDLE_TIMEOUT+" ms): "+isAlive);
+
+		RxMetrics.Snapshot delta = server.getMetrics().since(before);
+		System.out.println("written: "+delta.getBytesWritten()+" B in "+delta.getWriteCalls()+" calls");
+		boolean isCounted = delta.getBytesWritten() >= N_PUSHES && delta.getWriteCalls() >= N_PUSHES;
+
+		/* now silent: MUST be closed by the idle timeout */
+		boolean isClosed;
+		try {
+			isClosed = input.read() == -1;
+		}
+		catch(SocketTimeoutException exception) {
+			isClosed = false;
+		}
+		System.out.println("closed once silent: "+isClosed);
+
+		socket.close();
+		boolean isPassed = isAlive && isCounted && isClosed;
+		System.out.println(isPassed ? "PASSED" : "FAILED");
+		System.exit(isPassed ? 0 : 1);
+	}
+}
@@ -0,0 +1,137 @@
+package com.s8.stack.arch.tests.web.rx;
+
+import java.util.concurrent.CountDownLatch;
+
+import com.s8.core.web.helium.rx.Need;
+import com.s8.core.web.helium.rx.RxConnection;
+import com.s8.core.web.helium.rx.RxEndpoint;
+import com.s8.core.web.helium.rx.RxInbound;
+import com.s8.core.web.helium.rx.RxOutbound;
+
+
+/**
+ * Contention micro-benchmark: lock-free need word (VarHandle CAS) of
+ * <code>RxConnection</code> versus the former <code>synchronized</code> need
+ * word, hammered by several threads (app threads + reactor pattern).
+ *
+ * @author pierreconvert
+ *
+ */
+public class NeedContentionTest01 {
+
+
+	private final static int N_OPERATIONS = 10000000;
+
+
+	public static void main(String[] args) throws Exception {
+		for(int i=0; i<5; i++) {
+			for(int nThreads : new int[] { 1, 2, 4, 8 }) {
+				testLockFree(nThreads);
+				testLocked(nThreads);
+			}
+		}
+	}
+
+
+	private static void testLockFree(int nThreads) throws InterruptedException {
+		RxConnection connection = new Connection();
+		long time = run(nThreads, () -> {
+			for(int i=0; i<N_OPERATIONS; i++) {
+				connection.addNeed(Need.SEND);
+				if(connection.hasNeed(Need.SEND)) {
+					connection.clearNeed(Need.SEND);
+				}
+			}
+		});
+		System.out.println("lock-free ("+nThreads+" threads) time "+time/N_OPERATIONS+" ns/op");
+	}
+
+
+	private static void testLocked(int nThreads) throws InterruptedException {
+		LockedNeed connection = new LockedNeed();
+		long time = run(nThreads, () -> {
+			for(int i=0; i<N_OPERATIONS; i++) {
+				connection.addNeed(Need.SEND);
+				if(connection.hasNeed(Need.SEND)) {
+					connection.clearNeed(Need.SEND);
+				}
+			}
+		});
+		System.out.println("locked ("+nThreads+" threads) time "+time/N_OPERATIONS+" ns/op");
+	}
+
+
+	private static long run(int nThreads, Runnable runnable) throws InterruptedException {
+		CountDownLatch start = new CountDownLatch(1);
+		Thread[] threads = new Thread[nThreads];
+		for(int i=0; i<nThreads; i++) {
+			threads[i] = new Thread(() -> {
+				try {
+					start.await();
+				}
+				catch (InterruptedException e) {
+					e.printStackTrace();
+				}
+				runnable.run();
+			});
+			threads[i].start();
+		}
+		long time = System.nanoTime();
+		start.countDown();
+		for(Thread thread : threads) { thread.join(); }
+		return System.nanoTime() - time;
+	}
+
+
+	/**
+	 * Former implementation (monitor on every read/write)
+	 */
+	private static class LockedNeed {
+
+		private final Object needLock = new Object();
+
+		private int need = 0;
+
+		public void addNeed(int code) {
+			synchronized (needLock) { need |= code; }
+		}
+
+		public void clearNeed(int code) {
+			synchronized (needLock) { need &= ~code; }
+		}
+
+		public boolean hasNeed(int code) {
+			synchronized (needLock) { return (need & code) == code; }
+		}
+	}
+
+
+	/**
+	 * Detached connection (no key, no channel, no reactor)
+	 */
+	private static class Connection extends RxConnection {
+
+		public Connection() {
+			super(null, null);
+		}
+
+		@Override
+		public RxInbound getInbound() {
+			return null;
+		}
+
+		@Override
+		public RxOutbound getOutbound() {
+			return null;
+		}
+
+		@Override
+		public RxEndpoint getEndpoint() {
+			return null;
+		}
+
+		@Override
+		public void close() {
+		}
+	}
+}
@@ -0,0 +1,169 @@
+package com.s8.stack.arch.tests.web.ssl;
+
+import java.nio.ByteBuffer;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLEngineResult;
+import javax.net.ssl.SSLEngineResult.HandshakeStatus;
+import javax.net.ssl.SSLEngineResult.Status;
+import javax.net.ssl.SSLException;
+import javax.net.ssl.SSLParameters;
+
+import com.s8.core.web.helium.ssl.SSL_Module;
+import com.s8.core.web.helium.ssl.SSL_WebConfiguration;
+
+
+/**
+ * In-memory handshakes between two engines set up as <code>SSL_Connection</code>
+ * does: round trips before the client can send application data, and CPU time
+ * per handshake, for TLS 1.2 vs. TLS 1.3 (full, then resumed).
+ *
+ * @author pierreconvert
+ *
+ */
+public class SSL_HandshakeBenchmark {
+
+	private final static ByteBuffer EMPTY = ByteBuffer.allocate(0);
+
+
+	public static void main(String[] args) throws Exception {
+		SSL_WebConfiguration configuration = SSL_WebConfiguration.load(args.length > 0 ? args[0] : "config/server/SSL_config.xml");
+		int nHandshakes = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+		run(configuration, nHandshakes);
+	}
+
+
+	/**
+	 *
+	 * @param configuration (server keystore is also trusted by the client)
+	 * @param nHandshakes
+	 * @throws Exception
+	 */
+	public static void run(SSL_WebConfiguration configuration, int nHandshakes) throws Exception {
+		for(String protocol : new String[] { "TLSv1.2", "TLSv1.3" }) {
+			configuration.enabledProtocols = new String[] { protocol };
+
+			/* fresh context: empty session caches */
+			SSLContext context = SSL_Module.createContext(configuration);
+			benchmark(context, configuration, protocol+" full", false, nHandshakes);
+			benchmark(context, configuration, protocol+" resumed", true, nHandshakes);
+		}
+	}
+
+
+	private static void benchmark(SSLContext context, SSL_WebConfiguration configuration,
+			String label, boolean isResuming, int nHandshakes) throws SSLException {
+
+		/* warm up */
+		for(int i = 0; i < nHandshakes / 10 + 1; i++) { handshake(context, configuration, isResuming); }
+
+		int nRoundTrips = 0;
+		long time = System.nanoTime();
+		for(int i = 0; i < nHandshakes; i++) { nRoundTrips = handshake(context, configuration, isResuming); }
+		time = System.nanoTime() - time;
+
+		System.out.println("[SSL_HandshakeBenchmark] "+label+": "+nRoundTrips+" round trip(s), "
+				+(time / nHandshakes / 1000)+" us/handshake");
+	}
+
+
+	/**
+	 *
+	 * @param context
+	 * @param configuration
+	 * @param isResuming peer host and port given to client engine (session cache)
+	 * @return number of round trips before the client is done with handshaking
+	 * @throws SSLException
+	 */
+	private static int handshake(SSLContext context, SSL_WebConfiguration configuration, boolean isResuming)
+			throws SSLException {
+		SSLEngine client = isResuming ? context.createSSLEngine("benchmark", 443) : context.createSSLEngine();
+		client.setUseClientMode(true);
+		setup(client, configuration);
+
+		SSLEngine server = context.createSSLEngine();
+		server.setUseClientMode(false);
+		setup(server, configuration);
+
+		int packetSize = client.getSession().getPacketBufferSize();
+		int applicationSize = client.getSession().getApplicationBufferSize();
+		ByteBuffer clientToServer = ByteBuffer.allocate(packetSize * 4);
+		ByteBuffer serverToClient = ByteBuffer.allocate(packetSize * 4);
+		ByteBuffer application = ByteBuffer.allocate(applicationSize);
+
+		client.beginHandshake();
+		server.beginHandshake();
+
+		int nRoundTrips = 0;
+		boolean isClientHandshaking = true;
+		while(isHandshaking(client) || isHandshaking(server)
+				|| clientToServer.position() > 0 || serverToClient.position() > 0) {
+
+			/* a server flight is needed to go on: one more round trip */
+			if(isClientHandshaking && serverToClient.position() > 0) { nRoundTrips++; }
+
+			step(client, serverToClient, clientToServer, application);
+			isClientHandshaking = isHandshaking(client);
+
+			step(server, clientToServer, serverToClient, application);
+		}
+		return nRoundTrips;
+	}
+
+
+	private static void setup(SSLEngine engine, SSL_WebConfiguration configuration) {
+		SSLParameters parameters = engine.getSSLParameters();
+		SSL_Module.setupParameters(parameters, configuration);
+		engine.setSSLParameters(parameters);
+	}
+
+
+	private static boolean isHandshaking(SSLEngine engine) {
+		return engine.getHandshakeStatus() != HandshakeStatus.NOT_HANDSHAKING;
+	}
+
+
+	/**
+	 * Consume everything received, then produce everything the engine has to send
+	 *
+	 * @param engine
+	 * @param in (WRITE mode)
+	 * @param out (WRITE mode)
+	 * @param application
+	 * @throws SSLException
+	 */
+	private static void step(SSLEngine engine, ByteBuffer in, ByteBuffer out, ByteBuffer application)
+			throws SSLException {
+		in.flip();
+		boolean isProgressing = true;
+		while(isProgressing) {
+			SSLEngineResult result;
+			switch(engine.getHandshakeStatus()) {
+
+			case NEED_TASK:
+				Runnable task;
+				while((task = engine.getDelegatedTask()) != null) { task.run(); }
+				break;
+
+			case NEED_WRAP:
+				result = engine.wrap(EMPTY, out);
+				isProgressing = result.getStatus() == Status.OK;
+				break;
+
+			default:
+				/* NEED_UNWRAP, or post-handshake messages (session tickets) */
+				if(in.hasRemaining()) {
+					result = engine.unwrap(in, application);
+					application.clear();
+					isProgressing = result.getStatus() == Status.OK;
+				}
+				else {
+					isProgressing = false;
+				}
+				break;
+			}
+		}
+		in.compact();
+	}
+}
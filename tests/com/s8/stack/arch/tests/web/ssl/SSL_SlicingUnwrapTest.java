@@ -0,0 +1,549 @@
+package com.s8.stack.arch.tests.web.ssl;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLEngineResult;
+import javax.net.ssl.SSLEngineResult.HandshakeStatus;
+import javax.net.ssl.SSLEngineResult.Status;
+import javax.net.ssl.SSLException;
+import javax.net.ssl.SSLParameters;
+
+import com.s8.core.arch.silicon.SiliconEngine;
+import com.s8.core.web.helium.rx.RxSharedBuffer;
+import com.s8.core.web.helium.ssl.SSL_Connection;
+import com.s8.core.web.helium.ssl.SSL_Endpoint;
+import com.s8.core.web.helium.ssl.SSL_HandshakeMetrics;
+import com.s8.core.web.helium.ssl.SSL_Module;
+import com.s8.core.web.helium.ssl.SSL_WebConfiguration;
+
+
+/**
+ * <p>
+ * In-memory checks of slicing unwrap (<code>SSL-slicing_unwrap</code>): a
+ * server side <code>SSL_Connection</code> (no socket, no reactor) is fed with
+ * records produced by a client engine, while its upper layer keeps, or not,
+ * slices of what it receives. The application buffer MUST be:
+ * </p>
+ * <ul>
+ * <li>compacted in place when no slice is kept,</li>
+ * <li>enlarged on overflow, when bytes left unread by the upper layer leave
+ * too little room for a record,</li>
+ * <li>appended to (never overwritten) while slices are kept, and replaced once
+ * there is not enough room left for a record,</li>
+ * </ul>
+ * <p>
+ * and every shared buffer MUST be given back once the connection is closed.
+ * </p>
+ *
+ * @author pierreconvert
+ *
+ */
+public class SSL_SlicingUnwrapTest {
+
+	private final static ByteBuffer EMPTY = ByteBuffer.allocate(0);
+
+	/**
+	 * TLS maximum record plaintext length
+	 */
+	private final static int MAX_RECORD_LENGTH = 16384;
+
+
+	public static void main(String[] args) throws Exception {
+		SSL_WebConfiguration configuration = SSL_WebConfiguration.load(args.length > 0 ? args[0] : "config/server/SSL_config.xml");
+		boolean isPassed = run(configuration);
+		System.out.println(isPassed ? "PASSED" : "FAILED");
+		System.exit(isPassed ? 0 : 1);
+	}
+
+
+	/**
+	 *
+	 * @param configuration (server keystore is also trusted by the client)
+	 * @return true if all checks passed
+	 * @throws Exception
+	 */
+	public static boolean run(SSL_WebConfiguration configuration) throws Exception {
+		configuration.isServer = true;
+		configuration.isSlicingUnwrap = true;
+
+		/* full size records */
+		configuration.ssl_maxPacketSize = 0;
+
+		/* no socket */
+		configuration.socketConfiguration = null;
+
+		boolean isPassed = true;
+		for(String protocol : new String[] { "TLSv1.2", "TLSv1.3" }) {
+			configuration.enabledProtocols = new String[] { protocol };
+			SSLContext context = SSL_Module.createContext(configuration);
+			isPassed &= new SSL_SlicingUnwrapTest(context, configuration, protocol).run();
+		}
+		return isPassed;
+	}
+
+
+
+	private final String protocol;
+
+	private final SSLEngine client;
+
+	private final Peer server;
+
+	private final ByteBuffer clientToServer, serverToClient, application;
+
+	/**
+	 * index of the next byte sent by the client / expected by the upper layer
+	 */
+	private int nSent, nReceived;
+
+	private boolean isRetaining;
+
+	/**
+	 * upper layer leaves everything unread (e.g. waiting for the end of a frame)
+	 */
+	private boolean isDeferring;
+
+	private boolean isCorrupted;
+
+	private final List<Delivery> deliveries = new ArrayList<>();
+
+	private final List<Slice> slices = new ArrayList<>();
+
+	/**
+	 * every shared buffer seen by the upper layer
+	 */
+	private final Map<RxSharedBuffer, Boolean> sharedBuffers = new IdentityHashMap<>();
+
+
+	public SSL_SlicingUnwrapTest(SSLContext context, SSL_WebConfiguration configuration, String protocol) throws IOException {
+		super();
+		this.protocol = protocol;
+
+		client = context.createSSLEngine();
+		client.setUseClientMode(true);
+		SSLParameters parameters = client.getSSLParameters();
+		SSL_Module.setupParameters(parameters, configuration);
+		client.setSSLParameters(parameters);
+
+		server = new Peer(context, configuration);
+
+		int packetSize = client.getSession().getPacketBufferSize();
+		clientToServer = ByteBuffer.allocate(packetSize * 4);
+		serverToClient = ByteBuffer.allocate(packetSize * 4);
+		application = ByteBuffer.allocate(client.getSession().getApplicationBufferSize());
+	}
+
+
+	private boolean run() throws IOException {
+		client.beginHandshake();
+		server.start();
+		pump();
+		boolean isPassed = check("handshake", !isHandshaking(client) && !isHandshaking(server.ssl_getEngine()));
+
+		/* nothing kept: compacted in place */
+		deliveries.clear();
+		send(1000, 1000, 1000);
+		isPassed &= check("compact", deliveries.size() == 3 && isSameBuffer(0, 3)
+				&& deliveries.get(1).position == 0 && deliveries.get(2).position == 0);
+
+		/* unread bytes pile up until too little room is left for a full record: enlarged */
+		deliveries.clear();
+		isDeferring = true;
+		send(MAX_RECORD_LENGTH, MAX_RECORD_LENGTH, MAX_RECORD_LENGTH);
+		isDeferring = false;
+		send(1000);
+		int n = deliveries.size();
+		isPassed &= check("overflow", deliveries.get(n - 1).capacity > deliveries.get(0).capacity
+				&& deliveries.get(n - 1).position == 0);
+
+		/* slices kept: appended, then replaced when out of room */
+		deliveries.clear();
+		isRetaining = true;
+		for(int i = 0; i < 64 && isSameBuffer(0, deliveries.size()); i++) { send(4000); }
+		boolean isAppended = false;
+		for(int i = 1; i < deliveries.size(); i++) {
+			isAppended |= deliveries.get(i).sharedBuffer == deliveries.get(i - 1).sharedBuffer
+					&& deliveries.get(i).position > deliveries.get(i - 1).position;
+		}
+		isPassed &= check("append", isAppended);
+		isPassed &= check("replace", !isSameBuffer(0, deliveries.size()));
+		isPassed &= check("slices intact", checkSlices());
+
+		/* slices released: back to compacting */
+		isRetaining = false;
+		releaseSlices();
+		deliveries.clear();
+		send(1000, 1000);
+		isPassed &= check("compact after release", deliveries.size() == 2 && isSameBuffer(0, 2)
+				&& deliveries.get(1).position == 0);
+
+		/* close: every shared buffer given back */
+		server.inbound.close();
+		boolean isReleased = true;
+		for(RxSharedBuffer sharedBuffer : sharedBuffers.keySet()) {
+			isReleased &= sharedBuffer.getReferenceCount() == 0;
+		}
+		isPassed &= check("released on close ("+sharedBuffers.size()+" buffers)", isReleased);
+		isPassed &= check("data", !isCorrupted && nReceived == nSent);
+		return isPassed;
+	}
+
+
+	private boolean check(String label, boolean isPassed) {
+		System.out.println("[SSL_SlicingUnwrapTest] "+protocol+" "+label+": "+(isPassed ? "ok" : "FAILED"));
+		return isPassed;
+	}
+
+
+	private boolean isSameBuffer(int from, int to) {
+		for(int i = from + 1; i < to; i++) {
+			if(deliveries.get(i).sharedBuffer != deliveries.get(from).sharedBuffer) { return false; }
+		}
+		return true;
+	}
+
+
+	private boolean checkSlices() {
+		for(Slice slice : slices) {
+			byte[] array = slice.sharedBuffer.array();
+			for(int i = 0; i < slice.length; i++) {
+				if(array[slice.offset + i] != expected(slice.index + i)) { return false; }
+			}
+		}
+		return true;
+	}
+
+
+	private void releaseSlices() {
+		for(Slice slice : slices) { slice.sharedBuffer.release(); }
+		slices.clear();
+	}
+
+
+	private static byte expected(int index) {
+		return (byte) (index % 251);
+	}
+
+
+	/**
+	 * One message per length (a record, unless longer than what the engine puts
+	 * in a record), each one fully processed before the next one
+	 *
+	 * @param lengths
+	 * @throws IOException
+	 */
+	private void send(int... lengths) throws IOException {
+		for(int length : lengths) {
+			byte[] bytes = new byte[length];
+			for(int i = 0; i < length; i++) { bytes[i] = expected(nSent++); }
+			ByteBuffer source = ByteBuffer.wrap(bytes);
+			while(source.hasRemaining()) {
+				SSLEngineResult result = client.wrap(source, clientToServer);
+				if(result.getStatus() != Status.OK) {
+					throw new SSLException("Unexpected wrap result: "+result);
+				}
+				pump();
+			}
+		}
+	}
+
+
+	/**
+	 * Exchange until both sides have nothing left to send
+	 *
+	 * @throws IOException
+	 */
+	private void pump() throws IOException {
+		int nSteps = 0;
+		do {
+			if(nSteps++ > 64) { throw new SSLException("No progress"); }
+
+			/* client -> server */
+			clientToServer.flip();
+			while(clientToServer.hasRemaining()) {
+				server.inbound.push(clientToServer);
+				server.inbound.ssl_launchUnwrap();
+			}
+			clientToServer.compact();
+
+			/* server -> client */
+			server.outbound.pull(serverToClient);
+			step(client, serverToClient, clientToServer, application);
+		}
+		while(isHandshaking(client) || isHandshaking(server.ssl_getEngine())
+				|| clientToServer.position() > 0 || serverToClient.position() > 0);
+	}
+
+
+	private static boolean isHandshaking(SSLEngine engine) {
+		return engine.getHandshakeStatus() != HandshakeStatus.NOT_HANDSHAKING;
+	}
+
+
+	/**
+	 * Consume everything received, then produce everything the engine has to send
+	 * (see <code>SSL_HandshakeBenchmark</code>)
+	 *
+	 * @param engine
+	 * @param in (WRITE mode)
+	 * @param out (WRITE mode)
+	 * @param application
+	 * @throws SSLException
+	 */
+	private static void step(SSLEngine engine, ByteBuffer in, ByteBuffer out, ByteBuffer application)
+			throws SSLException {
+		in.flip();
+		boolean isProgressing = true;
+		while(isProgressing) {
+			SSLEngineResult result;
+			switch(engine.getHandshakeStatus()) {
+
+			case NEED_TASK:
+				Runnable task;
+				while((task = engine.getDelegatedTask()) != null) { task.run(); }
+				break;
+
+			case NEED_WRAP:
+				result = engine.wrap(EMPTY, out);
+				isProgressing = result.getStatus() == Status.OK;
+				break;
+
+			default:
+				/* NEED_UNWRAP, or post-handshake messages (session tickets) */
+				if(in.hasRemaining()) {
+					result = engine.unwrap(in, application);
+					application.clear();
+					isProgressing = result.getStatus() == Status.OK;
+				}
+				else {
+					isProgressing = false;
+				}
+				break;
+			}
+		}
+		in.compact();
+	}
+
+
+
+	/**
+	 * What the upper layer has been given
+	 */
+	private static class Delivery {
+
+		public final RxSharedBuffer sharedBuffer;
+
+		/**
+		 * position of the view in the application buffer
+		 */
+		public final int position;
+
+		public final int capacity;
+
+		public Delivery(RxSharedBuffer sharedBuffer, int position, int capacity) {
+			super();
+			this.sharedBuffer = sharedBuffer;
+			this.position = position;
+			this.capacity = capacity;
+		}
+	}
+
+
+	/**
+	 * Received bytes kept without copy
+	 */
+	private static class Slice {
+
+		public final RxSharedBuffer sharedBuffer;
+
+		public final int offset;
+
+		public final int length;
+
+		/**
+		 * index of the first byte in the stream
+		 */
+		public final int index;
+
+		public Slice(RxSharedBuffer sharedBuffer, int offset, int length, int index) {
+			super();
+			this.sharedBuffer = sharedBuffer;
+			this.offset = offset;
+			this.length = length;
+			this.index = index;
+		}
+	}
+
+
+
+	private class Inbound extends SSL_Inbound_Impl02 {
+
+		public Inbound(SSL_WebConfiguration configuration) {
+			super("server", configuration);
+		}
+
+		@Override
+		public void ssl_onReinitializing() {
+		}
+
+		@Override
+		public void ssl_onReceived(ByteBuffer buffer) {
+			RxSharedBuffer sharedBuffer = ssl_getReceivedBuffer();
+			sharedBuffers.put(sharedBuffer, Boolean.TRUE);
+			deliveries.add(new Delivery(sharedBuffer, buffer.position(), sharedBuffer.getBuffer().capacity()));
+
+			if(isDeferring) { return; }
+			int length = buffer.remaining();
+
+			if(isRetaining && length > 0) {
+				slices.add(new Slice(sharedBuffer.retain(), sharedBuffer.offset(buffer.position()), length, nReceived));
+			}
+			for(int i = 0; i < length; i++) {
+				if(buffer.get() != expected(nReceived++)) { isCorrupted = true; }
+			}
+		}
+
+		/**
+		 * Append bytes to the network buffer (READ mode)
+		 *
+		 * @param source
+		 */
+		void push(ByteBuffer source) {
+			networkBuffer.compact();
+			int n = Math.min(networkBuffer.remaining(), source.remaining());
+			ByteBuffer chunk = source.slice();
+			chunk.limit(n);
+			networkBuffer.put(chunk);
+			source.position(source.position() + n);
+			networkBuffer.flip();
+		}
+
+		/**
+		 * What the connection does once closed
+		 */
+		void close() {
+			rxReleaseBuffers();
+			rx_onClosed();
+		}
+	}
+
+
+	private class Outbound extends SSL_Outbound_Impl02 {
+
+		public Outbound(SSL_WebConfiguration configuration) {
+			super("server", configuration);
+		}
+
+		@Override
+		public void ssl_onHandshakingCompleted() {
+		}
+
+		@Override
+		public void ssl_onReinitializing() {
+		}
+
+		@Override
+		public void ssl_onSending(ByteBuffer buffer) {
+		}
+
+		/**
+		 * Move what has been wrapped to <code>destination</code>
+		 *
+		 * @param destination
+		 */
+		void pull(ByteBuffer destination) {
+			networkBuffer.flip();
+			destination.put(networkBuffer);
+			networkBuffer.clear();
+		}
+	}
+
+
+	private class Peer extends SSL_Connection implements SSL_Endpoint {
+
+		private final SSLContext context;
+
+		private final SSL_WebConfiguration configuration;
+
+		private final SSL_HandshakeMetrics handshakeMetrics = new SSL_HandshakeMetrics();
+
+		public final Inbound inbound;
+
+		public final Outbound outbound;
+
+		public Peer(SSLContext context, SSL_WebConfiguration configuration) throws IOException {
+			super(null, SocketChannel.open());
+			this.context = context;
+			this.configuration = configuration;
+
+			inbound = new Inbound(configuration);
+			inbound.connection = this;
+
+			outbound = new Outbound(configuration);
+			outbound.connection = this;
+
+			ssl_initialize(configuration);
+		}
+
+		@Override
+		public Inbound getInbound() {
+			return inbound;
+		}
+
+		@Override
+		public Outbound getOutbound() {
+			return outbound;
+		}
+
+		@Override
+		public SSL_Endpoint getEndpoint() {
+			return this;
+		}
+
+		@Override
+		public void close() {
+		}
+
+		@Override
+		public SSL_WebConfiguration getWebConfiguration() {
+			return configuration;
+		}
+
+		@Override
+		public SSLContext ssl_getContext() {
+			return context;
+		}
+
+		@Override
+		public Executor ssl_getTaskExecutor() {
+			return null;
+		}
+
+		@Override
+		public SSL_HandshakeMetrics ssl_getHandshakeMetrics() {
+			return handshakeMetrics;
+		}
+
+		@Override
+		public SiliconEngine getSiliconEngine() {
+			return null;
+		}
+
+		@Override
+		public void stop() throws Exception {
+		}
+
+		@Override
+		public void keySelectorWakeup() {
+		}
+	}
+}